@@ -1,6 +1,8 @@
 package org.example;
 
 import org.example.agent.AgentResult;
+import org.example.agent.LoopPolicy;
+import org.example.agent.RuleBasedToolCallPredictor;
 import org.example.agent.SimpleReActAgent;
 import org.example.llm.DashScopeLLMClient;
 import org.example.llm.LLMClient;
@@ -23,6 +25,8 @@ public class MinimalLynxeApp {
         String apiKey = "sk-b6c0b3223440431c8adb6ec827227f65";
         // 创建 LLM 客户端
         LLMClient llmClient = new DashScopeLLMClient(apiKey, "qwen-flash");
+        // 在准备工具的同时建立连接
+        llmClient.warmUp();
         // 准备工具
         List<Tool> tools = List.of(
                 new CalculatorTool(),
@@ -56,7 +60,9 @@ public class MinimalLynxeApp {
                 systemPrompt,
                 tools,
                 llmClient,
-                10  // 最大 10 步
+                10,  // 最大 10 步
+                LoopPolicy.CORRECTIVE_HINT,
+                new RuleBasedToolCallPredictor()  // 推测执行可预测的工具调用
         );
 
         // 执行任务
@@ -66,14 +72,16 @@ public class MinimalLynxeApp {
         System.out.println("  状态: " + result.getState());
         System.out.println("  步数: " + result.getStepsUsed());
         System.out.println("  结果: " + result.getResult());
+        System.out.println("  循环检测: " + result.getLoopStats());
+        System.out.println("  推测执行: " + agent.getSpeculationStats());
     }
     /**
      * 示例 2：Func-Agent 计划模式
      * 预定义计划步骤，按顺序执行
      */
     private static void runPlanMode(LLMClient llmClient, List<Tool> tools) {
-        // 创建计划执行器
-        PlanExecutor executor = new PlanExecutor(llmClient, tools);
+        // 创建计划执行器，各步骤同样推测执行可预测的工具调用
+        PlanExecutor executor = new PlanExecutor(llmClient, tools, new RuleBasedToolCallPredictor());
 
         // 定义计划
         Plan plan = new Plan("plan-001", "数学计算与信息搜索")
@@ -113,5 +121,6 @@ public class MinimalLynxeApp {
         }
 
         System.out.println("\n最终结果: " + result.getFinalResult());
+        System.out.println("推测执行: " + executor.getSpeculationStats());
     }
 }
\ No newline at end of file
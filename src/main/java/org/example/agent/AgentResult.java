@@ -4,16 +4,23 @@ public class AgentResult {
     private final AgentState state;
     private final String result;
     private final int stepsUsed;
+    private final LoopStats loopStats;
 
     public AgentResult(AgentState state, String result, int stepsUsed) {
+        this(state, result, stepsUsed, new LoopStats());
+    }
+
+    public AgentResult(AgentState state, String result, int stepsUsed, LoopStats loopStats) {
         this.state = state;
         this.result = result;
         this.stepsUsed = stepsUsed;
+        this.loopStats = loopStats;
     }
 
     public AgentState getState() { return state; }
     public String getResult() { return result; }
     public int getStepsUsed() { return stepsUsed; }
+    public LoopStats getLoopStats() { return loopStats; }
 
     @Override
     public String toString() {
@@ -0,0 +1,40 @@
+package org.example.agent;
+
+import org.example.tool.ReadOutputTool;
+import org.example.tool.ToolOutputStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次 Agent 运行的状态
+ * 每次 run 新建，只在执行该次运行的线程内使用；Agent 本身不保存运行状态，可以复用和并发共享
+ */
+class AgentSession implements AutoCloseable {
+    // 本次运行的上下文（例如计划步骤信息），放在系统提示之后
+    final String context;
+    final int maxSteps;
+
+    // 对话历史
+    final List<Map<String, String>> conversationHistory = new ArrayList<>();
+    final LoopDetector loopDetector;
+    final LoopStats loopStats = new LoopStats();
+    // 本次运行截断的工具输出，句柄只在本次运行内有效，运行结束时删除
+    final ToolOutputStore.Scope outputs;
+    final ReadOutputTool readOutputTool;
+
+    AgentSession(String context, int maxSteps, int maxNoToolResponses, ToolOutputStore outputStore) {
+        this.outputs = outputStore.openScope();
+        this.readOutputTool = new ReadOutputTool(outputs);
+        // 上下文（例如上一步结果）同样受长度限制，超出部分可用 read_output 读取
+        this.context = outputs.bound(context);
+        this.maxSteps = maxSteps;
+        this.loopDetector = new LoopDetector(maxNoToolResponses);
+    }
+
+    @Override
+    public void close() {
+        outputs.close();
+    }
+}
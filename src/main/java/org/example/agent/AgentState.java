@@ -5,5 +5,6 @@ public enum AgentState {
     RUNNING, //运行中
     COMPLETED, //已完成
     FAILED, //失败
-    MAX_STEPS //最大步数
+    MAX_STEPS, //最大步数
+    LOOP_DETECTED //检测到重复动作，提前结束
 }
@@ -0,0 +1,108 @@
+package org.example.agent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.example.llm.Json;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 重复动作检测器
+ * 每一步记录 (工具, 规范化参数, 结果) 指纹，检测周期性重复和连续无工具调用
+ */
+class LoopDetector {
+    // 检测的最大循环周期，例如 A→B→A→B 的周期为 2
+    private static final int MAX_PERIOD = 3;
+
+    private final int maxNoToolResponses;
+
+    // 每一步的指纹序列
+    private final List<String> fingerprints = new ArrayList<>();
+    // 调用键 → 最近一次的观察结果
+    private final Map<String, String> observations = new HashMap<>();
+    private int consecutiveNoTool;
+
+    LoopDetector(int maxNoToolResponses) {
+        this.maxNoToolResponses = maxNoToolResponses;
+    }
+
+    /**
+     * 工具名 + 规范化参数（按键排序的 JSON）
+     */
+    String callKey(String toolName, Map<String, Object> arguments) {
+        String args;
+        try {
+            args = Json.canonicalWriter().writeValueAsString(arguments != null ? arguments : Map.of());
+        } catch (JsonProcessingException e) {
+            args = String.valueOf(arguments);
+        }
+        return toolName + args;
+    }
+
+    /**
+     * 该调用之前的观察结果，没有执行过则返回 null
+     */
+    String cachedObservation(String callKey) {
+        return observations.get(callKey);
+    }
+
+    /**
+     * 假设即将执行的调用返回与上次相同的结果，判断是否会形成循环
+     * 只适用于无副作用、结果不变的工具；其他工具应在执行后由 {@link #recordToolCall} 按实际结果判断
+     */
+    boolean wouldCycle(String callKey) {
+        String cached = observations.get(callKey);
+        if (cached == null) {
+            return false;
+        }
+        List<String> candidate = new ArrayList<>(fingerprints);
+        candidate.add(fingerprint(callKey, cached));
+        return hasCycle(candidate);
+    }
+
+    /**
+     * 记录一次工具调用及其结果
+     * @return 记录后是否形成循环（调用和结果都重复）
+     */
+    boolean recordToolCall(String callKey, String observation) {
+        consecutiveNoTool = 0;
+        observations.put(callKey, observation);
+        fingerprints.add(fingerprint(callKey, observation));
+        return hasCycle(fingerprints);
+    }
+
+    /**
+     * 记录一次无工具调用的响应
+     * @return 连续无工具调用次数是否达到上限
+     */
+    boolean recordNoToolResponse() {
+        consecutiveNoTool++;
+        return consecutiveNoTool >= maxNoToolResponses;
+    }
+
+    private String fingerprint(String callKey, String observation) {
+        return callKey + "#" + (observation != null ? observation.hashCode() : 0);
+    }
+
+    /**
+     * 序列末尾是否由某个长度为 p 的片段连续出现两次构成
+     */
+    private static boolean hasCycle(List<String> sequence) {
+        int size = sequence.size();
+        for (int period = 1; period <= MAX_PERIOD && period * 2 <= size; period++) {
+            boolean repeated = true;
+            for (int i = 0; i < period; i++) {
+                if (!sequence.get(size - 1 - i).equals(sequence.get(size - 1 - i - period))) {
+                    repeated = false;
+                    break;
+                }
+            }
+            if (repeated) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
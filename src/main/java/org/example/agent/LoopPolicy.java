@@ -0,0 +1,13 @@
+package org.example.agent;
+
+/**
+ * 检测到重复动作（循环）后的处理策略
+ * 无副作用的工具在执行前按上次的结果判断，其他工具执行后按实际结果判断；
+ * 执行后才检测到的循环无法再复用缓存结果，CACHED_OBSERVATION 此时也改为注入纠正提示。
+ * 一次运行中检测到循环的次数达到上限时，CACHED_OBSERVATION 和 CORRECTIVE_HINT 也会升级为提前结束
+ */
+public enum LoopPolicy {
+    CACHED_OBSERVATION, //不再执行工具，直接返回缓存的观察结果
+    CORRECTIVE_HINT, //注入纠正提示，要求换一种方法或终止
+    TERMINATE //提前结束，状态为 LOOP_DETECTED
+}
@@ -0,0 +1,36 @@
+package org.example.agent;
+
+/**
+ * 循环检测统计
+ * - loopsDetected      检测到循环的次数（重复工具调用或连续无工具调用）
+ * - cachedObservations 复用缓存结果而跳过的工具执行次数（CACHED_OBSERVATION），实测值
+ * - hintsInjected      注入纠正提示的次数（CORRECTIVE_HINT）
+ * - escalated          是否因多次检测到循环而升级为提前结束
+ * - unusedSteps        提前结束时尚未使用的步数预算。只是节省的 LLM 调用次数的上界：
+ *                      不提前结束时 Agent 也可能在用完预算前自行终止
+ */
+public class LoopStats {
+    private int loopsDetected;
+    private int cachedObservations;
+    private int hintsInjected;
+    private boolean escalated;
+    private int unusedSteps;
+
+    void recordLoop() { loopsDetected++; }
+    void recordCachedObservation() { cachedObservations++; }
+    void recordHint() { hintsInjected++; }
+    void recordEscalation() { escalated = true; }
+    void recordUnusedSteps(int steps) { unusedSteps += steps; }
+
+    public int getLoopsDetected() { return loopsDetected; }
+    public int getCachedObservations() { return cachedObservations; }
+    public int getHintsInjected() { return hintsInjected; }
+    public boolean isEscalated() { return escalated; }
+    public int getUnusedSteps() { return unusedSteps; }
+
+    @Override
+    public String toString() {
+        return String.format("LoopStats{loops=%d, cached=%d, hints=%d, escalated=%s, unusedSteps=%d (节省 LLM 调用次数的上界)}",
+                loopsDetected, cachedObservations, hintsInjected, escalated, unusedSteps);
+    }
+}
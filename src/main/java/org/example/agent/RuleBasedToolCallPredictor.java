@@ -0,0 +1,42 @@
+package org.example.agent;
+
+import org.example.llm.ToolCall;
+import org.example.tool.Tool;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 基于规则的工具调用预测器
+ * - 第一步：请求中有算术表达式时预测 calculator，否则预测以请求为关键词的 search
+ * - 计算之后：请求中提到"搜索 XXX"时预测以 XXX 为关键词的 search
+ */
+public class RuleBasedToolCallPredictor implements ToolCallPredictor {
+    // 至少包含一个运算符的算术表达式，例如 (15 + 27) * 3
+    private static final Pattern EXPRESSION = Pattern.compile(
+            "[(\\d][\\d\\s.()]*[+\\-*/][\\d\\s.()+\\-*/]*[\\d)]");
+    private static final Pattern SEARCH_TOPIC = Pattern.compile(
+            "搜索(?:一下)?(?:关于)?\\s*(.+?)\\s*(?:的信息|的资料|[，。,.；;]|$)");
+
+    @Override
+    public ToolCall predict(String userRequest, ToolCall lastCall, Map<String, Tool> tools) {
+        if (lastCall == null) {
+            Matcher expression = EXPRESSION.matcher(userRequest);
+            if (tools.containsKey("calculator") && expression.find()) {
+                return new ToolCall("calculator", Map.of("expression", expression.group().trim()));
+            }
+            if (tools.containsKey("search")) {
+                return new ToolCall("search", Map.of("query", userRequest.trim()));
+            }
+            return null;
+        }
+        if ("calculator".equals(lastCall.getName()) && tools.containsKey("search")) {
+            Matcher topic = SEARCH_TOPIC.matcher(userRequest);
+            if (topic.find()) {
+                return new ToolCall("search", Map.of("query", topic.group(1)));
+            }
+        }
+        return null;
+    }
+}
@@ -1,15 +1,18 @@
 package org.example.agent;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.journal.EventJournal;
+import org.example.journal.JournalEventType;
 import org.example.llm.LLMClient;
+import org.example.llm.LLMOutputParser;
 import org.example.llm.LLMResponse;
+import org.example.llm.ToolCall;
+import org.example.tool.ReadOutputTool;
 import org.example.tool.Tool;
+import org.example.tool.ToolOutputStore;
 import org.example.tool.ToolResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,47 +21,119 @@ import java.util.Map;
 /**
  * 简单的 ReAct Agent 实现
  * 核心循环：Think → Act → Observe → Think → ...
+ * Agent 只保存不可变的定义（系统提示、工具、prompt 前缀），每次运行的状态在 {@link AgentSession} 中，
+ * 同一个实例可以重复运行，也可以被多个线程同时使用。
  */
 public class SimpleReActAgent {
     private static final Logger log = LoggerFactory.getLogger(SimpleReActAgent.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     private final String systemPrompt;
     private final Map<String, Tool> tools;
+    private final List<Tool> toolList;
     private final LLMClient llmClient;
     private final int maxSteps;
+    private final LoopPolicy loopPolicy;
+    private final ToolOutputStore outputStore;
+    // 推测执行：为 null 时关闭
+    private final ToolCallPredictor predictor;
+    private final SpeculationStats speculationStats = new SpeculationStats();
 
-    // 对话历史
-    private final List<Map<String,String>> conversationHistory = new ArrayList<>();
+    // 连续多少次无工具调用视为循环
+    private static final int MAX_NO_TOOL_RESPONSES = 3;
+    // 一次运行中检测到多少次循环后，不论策略都升级为提前结束
+    private static final int MAX_LOOP_DETECTIONS = 3;
+
+    // 预先构建的 prompt 前缀（系统提示、工具列表、格式说明），每一步直接复用
+    private final String promptPrefix;
+    private final String toolCallingPromptPrefix;
 
     public SimpleReActAgent(String systemPrompt, List<Tool> tools,
                             LLMClient llmClient, int maxSteps) {
+        this(systemPrompt, tools, llmClient, maxSteps, LoopPolicy.CORRECTIVE_HINT);
+    }
+
+    public SimpleReActAgent(String systemPrompt, List<Tool> tools,
+                            LLMClient llmClient, int maxSteps, LoopPolicy loopPolicy) {
+        this(systemPrompt, tools, llmClient, maxSteps, loopPolicy, null);
+    }
+
+    /**
+     * @param predictor 工具调用预测器，预测的无副作用工具会与 LLM 思考并行执行；为 null 时不做推测执行
+     */
+    public SimpleReActAgent(String systemPrompt, List<Tool> tools, LLMClient llmClient,
+                            int maxSteps, LoopPolicy loopPolicy, ToolCallPredictor predictor) {
         this.systemPrompt = systemPrompt;
-        this.tools = new HashMap<>();
+        this.outputStore = ToolOutputStore.global();
+        Map<String, Tool> toolMap = new HashMap<>();
         for (Tool tool : tools) {
-            this.tools.put(tool.getName(), tool);
+            toolMap.put(tool.getName(), tool);
         }
+        // 内置分页工具，读取被截断的工具输出；这里只用于工具列表，执行时使用本次运行的实例
+        toolMap.putIfAbsent(ReadOutputTool.NAME, new ReadOutputTool(null));
+        this.tools = Map.copyOf(toolMap);
+        this.toolList = List.copyOf(this.tools.values());
         this.llmClient = llmClient;
         this.maxSteps = maxSteps;
+        this.loopPolicy = loopPolicy;
+        this.predictor = predictor;
+        this.promptPrefix = buildPromptPrefix(true);
+        this.toolCallingPromptPrefix = buildPromptPrefix(false);
     }
 
     public AgentResult run(String userRequest) {
-        log.info("🚀 Agent 开始执行，请求内容: {}", userRequest);
+        return run(userRequest, null, maxSteps);
+    }
+
+    /**
+     * 执行一次请求
+     * @param userRequest 用户请求
+     * @param context 本次运行的上下文，放在系统提示之后，可为 null
+     * @param maxSteps 本次运行的最大步数
+     */
+    public AgentResult run(String userRequest, String context, int maxSteps) {
+        log.info("🚀 Agent 开始执行，请求内容: {}", EventJournal.preview(userRequest));
+        EventJournal.global().record(JournalEventType.AGENT_START, null, 0, maxSteps, userRequest);
+
+        AgentSession session = new AgentSession(context, maxSteps, MAX_NO_TOOL_RESPONSES, outputStore);
+        try {
+            return run(session, userRequest);
+        } finally {
+            session.close();
+        }
+    }
+
+    private AgentResult run(AgentSession session, String userRequest) {
+        int maxSteps = session.maxSteps;
+        List<Map<String, String>> conversationHistory = session.conversationHistory;
+        LoopDetector loopDetector = session.loopDetector;
+        LoopStats loopStats = session.loopStats;
 
         conversationHistory.add(Map.of("role", "user", "content", userRequest));
         int currentStep = 0;
         String lastResult = null;
+        ToolCall lastCall = null;
 
         while (currentStep < maxSteps) {
             currentStep++;
             log.info("📍 步骤 {}/{}", currentStep, maxSteps);
+            // 1. 推测执行预测的工具调用，与思考并行
+            Speculation speculation = speculate(userRequest, lastCall, session);
             try {
-                ThinkResult thinkResult = think();
+                ThinkResult thinkResult = think(session);
+                String callKey = thinkResult != null && thinkResult.toolCall != null
+                        ? loopDetector.callKey(thinkResult.toolCall.getName(), thinkResult.toolCall.getArguments())
+                        : null;
+                ToolResult speculativeResult = speculation != null
+                        ? speculation.resolve(callKey, speculationStats)
+                        : null;
                 if (thinkResult == null) {
                     log.error("思考返回空结果，正在重试...");
                     continue;
                 }
-                log.info("💭 Agent 思考中: {}", thinkResult.reasoning);
+                log.debug("💭 Agent 思考中: {}", EventJournal.preview(thinkResult.reasoning));
+                EventJournal.global().record(JournalEventType.AGENT_THINK,
+                        thinkResult.toolCall != null ? thinkResult.toolCall.getName() : null,
+                        currentStep, 0, thinkResult.reasoning);
 
                 // 2. 检查是否有工具调用
                 if (thinkResult.toolCall == null) {
@@ -67,33 +142,110 @@ public class SimpleReActAgent {
                             "role", "assistant",
                             "content", thinkResult.reasoning != null ? thinkResult.reasoning : ""
                     ));
+                    if (loopDetector.recordNoToolResponse()) {
+                        loopStats.recordLoop();
+                        log.warn("🔁 连续 {} 次没有工具调用，检测到循环", MAX_NO_TOOL_RESPONSES);
+                        if (shouldTerminateOnLoop(loopStats)) {
+                            return endOnLoop(thinkResult.reasoning != null ? thinkResult.reasoning : lastResult,
+                                    currentStep, session);
+                        }
+                        loopStats.recordHint();
+                        conversationHistory.add(Map.of(
+                                "role", "user",
+                                "content", "你已经连续多次没有调用工具。请立即调用工具；如果已经得到答案，请使用 'terminate' 工具提交。"
+                        ));
+                        continue;
+                    }
                     conversationHistory.add(Map.of(
                             "role", "user",
                             "content", "请使用工具继续执行。如果任务已完成，请使用 'terminate' 工具。"
                     ));
                     continue;
                 }
-                // 3. ACT: 执行工具
-                ToolResult toolResult = act(thinkResult.toolCall);
-                lastResult = toolResult.getOutput();
 
-                log.info("🔧 工具 '{}' 执行结果: {}", thinkResult.toolCall.name, lastResult);
+                // 3. 检查重复动作：只有无副作用的工具才假设重复调用返回相同结果，在执行前判断；
+                // 其他工具的结果可能变化，执行后按实际结果判断（见第 7 步）
+                Tool calledTool = tool(thinkResult.toolCall.getName(), session);
+                boolean repeatable = calledTool != null && calledTool.isSideEffectFree();
+                if (repeatable && loopDetector.wouldCycle(callKey)) {
+                    loopStats.recordLoop();
+                    String cached = loopDetector.cachedObservation(callKey);
+                    log.warn("🔁 检测到重复的工具调用: {}", thinkResult.toolCall);
+                    if (shouldTerminateOnLoop(loopStats)) {
+                        return endOnLoop(lastResult != null ? lastResult : cached, currentStep, session);
+                    }
+                    if (loopPolicy == LoopPolicy.CORRECTIVE_HINT) {
+                        loopStats.recordHint();
+                        conversationHistory.add(Map.of(
+                                "role", "user",
+                                "content", String.format(
+                                        "你在重复相同的工具调用 %s，结果不会改变: %s\n请换一种方法，或使用 'terminate' 工具提交答案。",
+                                        thinkResult.toolCall, cached)
+                        ));
+                        continue;
+                    }
+                    // CACHED_OBSERVATION: 不再执行工具，直接复用上次的观察结果
+                    loopStats.recordCachedObservation();
+                    lastResult = cached;
+                    loopDetector.recordToolCall(callKey, cached);
+                    lastCall = thinkResult.toolCall;
+                    conversationHistory.add(Map.of("role", "assistant", "content", String.format(
+                            "我将使用 %s 工具。\n工具调用: %s\n执行结果（重复调用，返回缓存结果）: %s",
+                            thinkResult.toolCall.getName(),
+                            thinkResult.toolCall.toString(),
+                            cached
+                    )));
+                    continue;
+                }
 
-                // 4. 添加结果到对话历史
+                // 4. ACT: 执行工具（推测命中时直接使用推测结果）
+                ToolResult toolResult = speculativeResult != null ? speculativeResult : act(thinkResult.toolCall, session);
+                // 限制进入对话历史的输出长度，超出部分写入临时文件，可用 read_output 分页读取
+                lastResult = toolResult.isShouldTerminate()
+                        ? toolResult.getOutput()
+                        : session.outputs.bound(toolResult.getOutput());
+                lastCall = thinkResult.toolCall;
+                boolean cycled = loopDetector.recordToolCall(callKey, lastResult);
+
+                log.info("🔧 工具 '{}' 执行完成", thinkResult.toolCall.getName());
+                log.debug("🔧 工具 '{}' 执行结果: {}", thinkResult.toolCall.getName(), EventJournal.preview(lastResult));
+                EventJournal.global().record(JournalEventType.TOOL_RESULT, thinkResult.toolCall.getName(),
+                        currentStep, toolResult.isSuccess() ? 1 : 0, toolResult.getOutput());
+
+                // 5. 添加结果到对话历史
                 String assistantMessage = String.format(
                         "我将使用 %s 工具。\n工具调用: %s\n执行结果: %s",
-                        thinkResult.toolCall.name,
+                        thinkResult.toolCall.getName(),
                         thinkResult.toolCall.toString(),
                         lastResult
                 );
                 conversationHistory.add(Map.of("role", "assistant", "content", assistantMessage));
 
-                // 5. 检查是否应该终止
+                // 6. 检查是否应该终止
                 if (toolResult.isShouldTerminate()) {
                     log.info("✅ Agent 执行成功完成");
-                    return new AgentResult(AgentState.COMPLETED, lastResult, currentStep);
+                    return finish(new AgentResult(AgentState.COMPLETED, lastResult, currentStep, loopStats));
+                }
+
+                // 7. 按实际结果检测到循环：工具已经执行，不能复用缓存结果，各策略都改为注入纠正提示
+                if (cycled) {
+                    loopStats.recordLoop();
+                    log.warn("🔁 重复的工具调用得到了重复的结果: {}", thinkResult.toolCall);
+                    if (shouldTerminateOnLoop(loopStats)) {
+                        return endOnLoop(lastResult, currentStep, session);
+                    }
+                    loopStats.recordHint();
+                    conversationHistory.add(Map.of(
+                            "role", "user",
+                            "content", String.format(
+                                    "你在重复相同的工具调用 %s，得到的结果也与之前相同。\n请换一种方法，或使用 'terminate' 工具提交答案。",
+                                    thinkResult.toolCall)
+                    ));
                 }
             }catch (Exception e){
+                if (speculation != null) {
+                    speculation.resolve(null, speculationStats);
+                }
                 log.error("步骤 {} 出错: {}", currentStep, e.getMessage(), e);
                 conversationHistory.add(Map.of(
                         "role", "user",
@@ -102,32 +254,121 @@ public class SimpleReActAgent {
             }
         }
         log.warn("⚠️ 已达到最大步数限制");
-        return new AgentResult(AgentState.MAX_STEPS,
+        return finish(new AgentResult(AgentState.MAX_STEPS,
                 lastResult != null ? lastResult : "达到最大步数限制，任务未完成",
-                currentStep);
+                currentStep, loopStats));
+    }
+
+    /**
+     * 策略为 TERMINATE，或提示、缓存结果都没能打破循环（检测次数达到上限）时提前结束
+     */
+    private boolean shouldTerminateOnLoop(LoopStats loopStats) {
+        if (loopPolicy == LoopPolicy.TERMINATE) {
+            return true;
+        }
+        if (loopStats.getLoopsDetected() >= MAX_LOOP_DETECTIONS) {
+            loopStats.recordEscalation();
+            log.warn("🔁 已检测到 {} 次循环，{} 策略未能打破循环，提前结束", MAX_LOOP_DETECTIONS, loopPolicy);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 检测到循环后提前结束，记录未使用的步数预算
+     */
+    private AgentResult endOnLoop(String result, int currentStep, AgentSession session) {
+        LoopStats loopStats = session.loopStats;
+        loopStats.recordUnusedSteps(session.maxSteps - currentStep);
+        log.warn("🔁 检测到循环，提前结束 ({})", loopStats);
+        return finish(new AgentResult(AgentState.LOOP_DETECTED,
+                result != null ? result : "检测到重复动作，任务未完成",
+                currentStep, loopStats));
+    }
+
+    /**
+     * 预测下一步的工具调用，只推测执行存在、无副作用且尚未执行过的调用
+     */
+    private Speculation speculate(String userRequest, ToolCall lastCall, AgentSession session) {
+        if (predictor == null) {
+            return null;
+        }
+        ToolCall predicted = predictor.predict(userRequest, lastCall, tools);
+        if (predicted == null) {
+            return null;
+        }
+        LoopDetector loopDetector = session.loopDetector;
+        Tool tool = tool(predicted.getName(), session);
+        if (tool == null || !tool.isSideEffectFree()) {
+            return null;
+        }
+        String callKey = loopDetector.callKey(predicted.getName(), predicted.getArguments());
+        if (loopDetector.cachedObservation(callKey) != null) {
+            return null;
+        }
+        log.debug("🔮 推测执行: {}", predicted);
+        return new Speculation(tool, predicted.getArguments(), callKey);
+    }
+
+    /**
+     * 推测执行统计，该 Agent 所有运行累计
+     */
+    public SpeculationStats getSpeculationStats() {
+        return speculationStats;
+    }
+
+    private AgentResult finish(AgentResult result) {
+        EventJournal.global().record(JournalEventType.AGENT_END, result.getState().name(),
+                result.getStepsUsed(), result.getLoopStats().getUnusedSteps(), result.getResult());
+        return result;
     }
 
     /**
      * Act: 执行工具调用
      */
-    private ToolResult act(ToolCall toolCall) {
-        Tool tool = tools.get(toolCall.name);
+    private ToolResult act(ToolCall toolCall, AgentSession session) {
+        Tool tool = tool(toolCall.getName(), session);
         if (tool == null) {
-            return ToolResult.error("工具 " + toolCall.name + " 不存在");
+            return ToolResult.error("工具 " + toolCall.getName() + " 不存在");
         }
-        return tool.execute(toolCall.arguments);
+        return tool.execute(toolCall.getArguments());
+    }
+
+    /**
+     * 按名称查找工具，read_output 使用本次运行的实例（只能读取本次运行的句柄）
+     */
+    private Tool tool(String name, AgentSession session) {
+        return ReadOutputTool.NAME.equals(name) ? session.readOutputTool : tools.get(name);
     }
 
     /**
      * 思考 让LLM 分析并决定下一步
      * @return 思考结果
      */
-    private ThinkResult think() {
+    private ThinkResult think(AgentSession session) {
+        // 支持原生工具调用时，工具定义随请求发送，prompt 中不再需要格式说明
+        if (llmClient.supportsToolCalling()) {
+            LLMResponse llmResponse = llmClient.chat(buildPrompt(session, false), toolList);
+            if (llmResponse == null) {
+                return null;
+            }
+            if (llmResponse.hasToolCalls()) {
+                if (llmResponse.getToolCalls().size() > 1) {
+                    log.debug("LLM 返回了 {} 个工具调用，只执行第一个", llmResponse.getToolCalls().size());
+                }
+                ThinkResult result = new ThinkResult();
+                result.reasoning = llmResponse.getContent();
+                result.toolCall = llmResponse.getToolCalls().get(0);
+                return result;
+            }
+            return llmResponse.getContent() != null ? parseThinkResult(llmResponse.getContent()) : null;
+        }
+
         // 构建完整的prompt
-        String prompt = buildPrompt();
+        String prompt = buildPrompt(session, true);
 
         // 调用LLM
-        LLMResponse llmResponse = llmClient.chat(prompt);
+        LLMResponse llmResponse = llmClient.chatJson(prompt);
         if (llmResponse == null || llmResponse.getContent() == null) {
             return null;
         }
@@ -136,53 +377,72 @@ public class SimpleReActAgent {
 
     private ThinkResult parseThinkResult(String content) {
         ThinkResult result = new ThinkResult();
-        try {
-            // 尝试提取 JSON
-            String json = extractJson(content);
-            if (json == null) {
-                result.reasoning = content;
-                return result;
-            }
-            JsonNode root = objectMapper.readTree(json);
+        // 容错解析：代码块、多个对象、多余逗号、截断结尾都能处理，参数保留原始类型
+        Map<String, Object> root = LLMOutputParser.parseObject(content);
+        if (root == null || (!root.containsKey("tool") && !root.containsKey("reasoning"))) {
+            log.warn("LLM 响应中没有可解析的 JSON");
+            result.reasoning = content;
+            return result;
+        }
 
-            // 提取 reasoning
-            if (root.has("reasoning")) {
-                result.reasoning = root.get("reasoning").asText();
+        // 提取 reasoning
+        Object reasoning = root.get("reasoning");
+        if (reasoning != null) {
+            result.reasoning = reasoning.toString();
+        }
+        // 提取工具调用
+        Object toolName = root.get("tool");
+        if (toolName != null) {
+            Map<String, Object> args = new HashMap<>();
+            if (root.get("arguments") instanceof Map<?, ?> argsMap) {
+                argsMap.forEach((key, value) -> args.put(String.valueOf(key), value));
             }
-            // 提取工具调用
-            if (root.has("tool")) {
-                String toolName = root.get("tool").asText();
-                Map<String, Object> args = new HashMap<>();
-
-                if (root.has("arguments")) {
-                    JsonNode argsNode = root.get("arguments");
-                    argsNode.fields().forEachRemaining(entry ->
-                            args.put(entry.getKey(), entry.getValue().asText())
-                    );
-                }
+            result.toolCall = new ToolCall(toolName.toString(), args);
+        }
+        return result;
+    }
 
-                result.toolCall = new ToolCall(toolName, args);
-            }
+    /**
+     * 构建发送给 LLM 的 prompt：固定前缀 + 本次运行的上下文 + 对话历史
+     * @param withFormatSpec 是否包含工具列表和 JSON 输出格式说明（原生工具调用时不需要）
+     */
+    private String buildPrompt(AgentSession session, boolean withFormatSpec) {
+        String prefix = withFormatSpec ? promptPrefix : toolCallingPromptPrefix;
+        StringBuilder sb = new StringBuilder(prefix.length() + 1024);
+        sb.append(prefix);
+        if (session.context != null) {
+            sb.append("任务上下文:\n").append(session.context).append("\n\n");
+        }
 
-        }catch (Exception e){
-            log.warn("解析 LLM 响应为 JSON 失败: {}", e.getMessage());
-            result.reasoning = content;
+        // 对话历史
+        sb.append("对话历史:\n");
+        for (Map<String, String> msg : session.conversationHistory) {
+            sb.append(msg.get("role").toUpperCase()).append(": ")
+                    .append(msg.get("content")).append("\n\n");
         }
-        return result;
+
+        sb.append("助手: ");
+
+        return sb.toString();
     }
 
     /**
-     * 构建发送给 LLM 的 prompt
+     * 构建 prompt 中与运行无关的固定部分
      */
-    private String buildPrompt() {
+    private String buildPromptPrefix(boolean withFormatSpec) {
         StringBuilder sb = new StringBuilder();
 
         // 1. 系统提示
         sb.append("系统提示:\n").append(systemPrompt).append("\n\n");
 
+        if (!withFormatSpec) {
+            sb.append("每一步都调用一个工具。当任务完成时，必须使用 'terminate' 工具。\n\n");
+            return sb.toString();
+        }
+
         // 2. 工具列表
         sb.append("可用工具:\n");
-        for (Tool tool : tools.values()) {
+        for (Tool tool : toolList) {
             sb.append(String.format("- %s: %s\n  参数: %s\n",
                     tool.getName(),
                     tool.getDescription(),
@@ -209,15 +469,6 @@ public class SimpleReActAgent {
             
             """);
 
-        // 4. 对话历史
-        sb.append("对话历史:\n");
-        for (Map<String, String> msg : conversationHistory) {
-            sb.append(msg.get("role").toUpperCase()).append(": ")
-                    .append(msg.get("content")).append("\n\n");
-        }
-
-        sb.append("助手: ");
-
         return sb.toString();
     }
 
@@ -226,33 +477,4 @@ public class SimpleReActAgent {
         String reasoning;
         ToolCall toolCall;
     }
-    // 内部类：工具调用
-    private static class ToolCall {
-        final String name;
-        final Map<String, Object> arguments;
-
-        ToolCall(String name, Map<String, Object> arguments) {
-            this.name = name;
-            this.arguments = arguments;
-        }
-
-        @Override
-        public String toString() {
-            return String.format("%s(%s)", name, arguments);
-        }
-    }
-    /**
-     * * 从文本中提取 JSON
-     */
-    private String extractJson(String content) {
-        // 找到第一个 { 和最后一个 }
-        int start = content.indexOf('{');
-        int end = content.lastIndexOf('}');
-
-        if (start >= 0 && end > start) {
-            return content.substring(start, end + 1);
-        }
-
-        return null;
-    }
 }
@@ -0,0 +1,70 @@
+package org.example.agent;
+
+import org.example.tool.Tool;
+import org.example.tool.ToolResult;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 一次推测执行：在 LLM 思考的同时执行预测的工具调用
+ */
+class Speculation {
+    // 工具调用多为短任务，使用虚拟线程，不需要关闭
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final String toolName;
+    private final String callKey;
+    private final Future<ToolResult> future;
+    private final long startNanos;
+    private volatile long endNanos;
+    private boolean resolved;
+
+    Speculation(Tool tool, Map<String, Object> arguments, String callKey) {
+        this.toolName = tool.getName();
+        this.callKey = callKey;
+        this.startNanos = System.nanoTime();
+        this.future = executor.submit(() -> {
+            try {
+                return tool.execute(arguments);
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        });
+    }
+
+    /**
+     * LLM 决策后调用：决策与预测一致时返回推测结果，否则丢弃
+     * @param actualCallKey 实际的调用键，没有工具调用时为 null
+     * @return 推测结果，未命中或已处理过返回 null
+     */
+    ToolResult resolve(String actualCallKey, SpeculationStats stats) {
+        if (resolved) {
+            return null;
+        }
+        resolved = true;
+        long decisionNanos = System.nanoTime();
+        if (!callKey.equals(actualCallKey)) {
+            future.cancel(true);
+            stats.recordMiss(toolName);
+            return null;
+        }
+        try {
+            ToolResult result = future.get();
+            // 节省的时间 = 工具执行中与思考重叠的部分
+            stats.recordHit(toolName, Math.min(endNanos, decisionNanos) - startNanos);
+            return result;
+        } catch (InterruptedException e) {
+            // 保留中断标记，例如批量执行取消时由上层结束本次运行
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            stats.recordMiss(toolName);
+            return null;
+        } catch (Exception e) {
+            stats.recordMiss(toolName);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.agent;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 推测执行统计（按工具），同一个 Agent 的所有运行共用，线程安全
+ */
+public class SpeculationStats {
+    private final Map<String, ToolStats> byTool = new ConcurrentHashMap<>();
+
+    void recordHit(String toolName, long savedNanos) {
+        ToolStats stats = stats(toolName);
+        stats.attempts.increment();
+        stats.hits.increment();
+        stats.savedNanos.add(Math.max(0, savedNanos));
+    }
+
+    void recordMiss(String toolName) {
+        stats(toolName).attempts.increment();
+    }
+
+    /**
+     * 多个统计之和，例如计划中各步骤 Agent 的统计
+     */
+    public static SpeculationStats sum(Collection<SpeculationStats> all) {
+        SpeculationStats total = new SpeculationStats();
+        for (SpeculationStats stats : all) {
+            stats.byTool.forEach((name, tool) -> {
+                ToolStats target = total.stats(name);
+                target.attempts.add(tool.attempts.sum());
+                target.hits.add(tool.hits.sum());
+                target.savedNanos.add(tool.savedNanos.sum());
+            });
+        }
+        return total;
+    }
+
+    private ToolStats stats(String toolName) {
+        return byTool.computeIfAbsent(toolName, name -> new ToolStats());
+    }
+
+    public long getAttempts(String toolName) {
+        ToolStats stats = byTool.get(toolName);
+        return stats != null ? stats.attempts.sum() : 0;
+    }
+
+    public long getHits(String toolName) {
+        ToolStats stats = byTool.get(toolName);
+        return stats != null ? stats.hits.sum() : 0;
+    }
+
+    /**
+     * 命中时工具执行与 LLM 思考重叠的时间，即节省的延迟
+     */
+    public long getSavedMillis(String toolName) {
+        ToolStats stats = byTool.get(toolName);
+        return stats != null ? TimeUnit.NANOSECONDS.toMillis(stats.savedNanos.sum()) : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SpeculationStats{");
+        new TreeMap<>(byTool).forEach((name, stats) -> {
+            long attempts = stats.attempts.sum();
+            long hits = stats.hits.sum();
+            sb.append(String.format("%s: hits=%d/%d (%.0f%%), saved=%dms; ", name, hits, attempts,
+                    attempts > 0 ? hits * 100.0 / attempts : 0,
+                    TimeUnit.NANOSECONDS.toMillis(stats.savedNanos.sum())));
+        });
+        return sb.append('}').toString();
+    }
+
+    private static class ToolStats {
+        final LongAdder attempts = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        final LongAdder savedNanos = new LongAdder();
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.agent;
+
+import org.example.llm.ToolCall;
+import org.example.tool.Tool;
+
+import java.util.Map;
+
+/**
+ * 工具调用预测器
+ * 在 LLM 思考的同时预测下一步的工具调用，用于推测执行
+ */
+public interface ToolCallPredictor {
+    /**
+     * 预测下一步的工具调用
+     * @param userRequest 本次运行的请求
+     * @param lastCall 上一步的工具调用，第一步为 null
+     * @param tools 可用工具
+     * @return 预测的工具调用，无法预测时返回 null
+     */
+    ToolCall predict(String userRequest, ToolCall lastCall, Map<String, Tool> tools);
+}
@@ -0,0 +1,53 @@
+package org.example.batch;
+
+import org.example.llm.DashScopeLLMClient;
+import org.example.llm.Json;
+import org.example.llm.ThrottledLLMClient;
+import org.example.tool.CalculatorTool;
+import org.example.tool.SearchTool;
+import org.example.tool.TerminateTool;
+import org.example.tool.Tool;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 批量执行入口
+ * 用法: BatchPlanApp <模板.json> <输入.jsonl> <输出.jsonl> [并发计划数] [并发LLM请求数]
+ * API Key 从环境变量 DASHSCOPE_API_KEY 读取
+ */
+public class BatchPlanApp {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("用法: BatchPlanApp <模板.json> <输入.jsonl> <输出.jsonl> [并发计划数] [并发LLM请求数]");
+            System.exit(1);
+        }
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int maxConcurrentRequests = args.length > 4 ? Integer.parseInt(args[4]) : parallelism;
+
+        ThrottledLLMClient llmClient = new ThrottledLLMClient(
+                new DashScopeLLMClient(System.getenv("DASHSCOPE_API_KEY"), "qwen-flash"),
+                maxConcurrentRequests);
+        llmClient.warmUp();
+        List<Tool> tools = List.of(
+                new CalculatorTool(),
+                new SearchTool(),
+                new TerminateTool()
+        );
+
+        BatchPlanRunner runner = new BatchPlanRunner(
+                PlanTemplate.load(Path.of(args[0]), Json.mapper()),
+                llmClient, tools, parallelism);
+        BatchReport report = runner.run(Path.of(args[1]), Path.of(args[2]));
+
+        System.out.println("\n📊 批量执行结果:");
+        System.out.println("  完成: " + report.getCompleted());
+        System.out.println("  失败: " + report.getFailed());
+        System.out.println("  跳过(已完成): " + report.getSkipped());
+        System.out.printf("  吞吐量: %.2f 计划/秒%n", report.getThroughput());
+        System.out.println("  延迟 p50/p99: " + report.getP50Millis() + " / " + report.getP99Millis() + " ms");
+        System.out.println("  LLM 请求数: " + report.getLlmRequests());
+        System.out.println("  令牌: 输入=" + report.getInputTokens() + ", 输出=" + report.getOutputTokens());
+    }
+}
@@ -0,0 +1,291 @@
+package org.example.batch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.example.agent.AgentState;
+import org.example.llm.Json;
+import org.example.llm.ThrottledLLMClient;
+import org.example.plan.Plan;
+import org.example.plan.PlanExecutor;
+import org.example.tool.Tool;
+import org.example.util.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量计划执行器
+ * 从 JSONL 文件流式读取输入，用同一个计划模板实例化并以有限并发执行，
+ * 结果逐条追加到输出文件，成功完成的ID记录在检查点文件中，重启时跳过。
+ * 失败的条目（包括有步骤用完步数或检测到循环的条目）不写检查点，重启时会重新执行（例如服务端故障后直接重跑即可），
+ * 因此输出文件中同一ID可能有多条记录，以最后一条为准。
+ *
+ * 输入每行一个 JSON 对象，"id" 字段作为计划实例ID（缺省为行号），所有字段都可作为模板占位符。
+ * 无法解析的行、ID 为空或包含换行符的行记为失败并继续处理后续行。
+ * 检查点文件为 输出文件名 + ".checkpoint"，每行一个成功完成的ID。
+ * 每次 run() 的文件和统计相互独立，同一个执行器可以多次或并发调用（并发时应使用不同的输出文件）；
+ * 报告中的 LLM 请求数和令牌数取自共享的 LLM 客户端，并发运行时会包含其他运行的请求。
+ */
+public class BatchPlanRunner {
+    private static final Logger log = LoggerFactory.getLogger(BatchPlanRunner.class);
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final PlanTemplate template;
+    private final ThrottledLLMClient llmClient;
+    private final PlanExecutor executor;
+    private final int parallelism;
+
+    /**
+     * @param template 计划模板
+     * @param llmClient 共享的 LLM 调度器，限制所有计划的并发请求数
+     * @param tools 可用工具
+     * @param parallelism 同时执行的计划数
+     */
+    public BatchPlanRunner(PlanTemplate template, ThrottledLLMClient llmClient,
+                           List<Tool> tools, int parallelism) {
+        this.template = template;
+        this.llmClient = llmClient;
+        this.executor = new PlanExecutor(llmClient, tools);
+        this.parallelism = parallelism;
+    }
+
+    public BatchReport run(Path input, Path outputFile) throws IOException {
+        Path checkpointFile = outputFile.resolveSibling(outputFile.getFileName() + ".checkpoint");
+        Set<String> done = loadCheckpoint(checkpointFile);
+        log.info("📦 开始批量执行: 输入={}, 已完成={}, 并发={}", input, done.size(), parallelism);
+
+        long requestsBefore = llmClient.getRequestCount();
+        long inputTokensBefore = llmClient.getInputTokens();
+        long outputTokensBefore = llmClient.getOutputTokens();
+        long start = System.nanoTime();
+        int skipped = 0;
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        // 限制已提交但未完成的任务数，输入文件不会被整体读入内存
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        boolean interrupted = false;
+        RunState state;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter out = append(outputFile);
+             BufferedWriter cp = append(checkpointFile)) {
+            state = new RunState(out, cp);
+            try {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Map<String, Object> item;
+                    try {
+                        item = Json.mapper().readValue(line, MAP_TYPE);
+                    } catch (IOException e) {
+                        log.warn("第 {} 行无法解析，记为失败: {}", lineNumber, e.getMessage());
+                        state.writeInvalid("line-" + lineNumber, "无法解析输入: " + e.getMessage());
+                        continue;
+                    }
+                    Object idValue = item.get("id");
+                    String id = idValue != null ? idValue.toString() : "line-" + lineNumber;
+                    // 检查点文件按行存储ID，换行符会破坏文件，空ID读回时会被忽略
+                    if (id.isBlank() || id.indexOf('\n') >= 0 || id.indexOf('\r') >= 0) {
+                        log.warn("第 {} 行的 id 为空或包含换行符，记为失败", lineNumber);
+                        state.writeInvalid("line-" + lineNumber, "id 不能为空或包含换行符");
+                        continue;
+                    }
+                    if (done.contains(id)) {
+                        skipped++;
+                        continue;
+                    }
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            runItem(state, id, item);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                log.warn("批量执行被中断，成功完成的结果已写入检查点");
+            } finally {
+                // 输出文件关闭前等待所有任务结束，任务不会写入已关闭的文件
+                interrupted |= awaitWorkers(workers, interrupted);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        BatchReport report;
+        synchronized (state) {
+            long[] sorted = state.latencies.sorted();
+            report = new BatchReport(state.finished - state.failed, state.failed + state.invalid, skipped, wallTime,
+                    LatencyRecorder.percentile(sorted, 0.50), LatencyRecorder.percentile(sorted, 0.99),
+                    llmClient.getRequestCount() - requestsBefore,
+                    llmClient.getInputTokens() - inputTokensBefore,
+                    llmClient.getOutputTokens() - outputTokensBefore);
+        }
+        log.info("📦 批量执行完成: {}", report);
+        return report;
+    }
+
+    private void runItem(RunState state, String id, Map<String, Object> item) {
+        long start = System.nanoTime();
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", id);
+        boolean success;
+        try {
+            Plan plan = template.instantiate(id, item);
+            PlanExecutor.PlanResult result = executor.execute(plan);
+            // 计划引擎把用完步数、检测到循环的步骤也视为完成；批量执行只把每一步都正常终止的条目算作成功，
+            // 例如 LLM 服务不可用时步骤会用完步数，这些条目不写检查点，重启后重新执行
+            success = result.getState() == AgentState.COMPLETED && result.getStepResults().stream()
+                    .allMatch(step -> step.getState() == AgentState.COMPLETED);
+            record.put("state", result.getState().name());
+            record.put("finalResult", result.getFinalResult());
+            List<Map<String, Object>> steps = new ArrayList<>();
+            for (PlanExecutor.StepResult step : result.getStepResults()) {
+                Map<String, Object> stepRecord = new LinkedHashMap<>();
+                stepRecord.put("index", step.getStepIndex());
+                stepRecord.put("state", step.getState().name());
+                stepRecord.put("stepsUsed", step.getStepsUsed());
+                stepRecord.put("result", step.getResult());
+                steps.add(stepRecord);
+            }
+            record.put("steps", steps);
+        } catch (Exception e) {
+            log.error("计划 {} 执行出错: {}", id, e.getMessage(), e);
+            success = false;
+            record.put("state", AgentState.FAILED.name());
+            record.put("error", String.valueOf(e.getMessage()));
+        }
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        record.put("latencyMs", latency);
+        state.write(id, record, latency, success);
+    }
+
+    /**
+     * 关闭线程池并等待所有任务结束；中断时取消剩余任务，但仍等待正在执行的任务写完结果
+     * @return 等待期间是否被中断
+     */
+    private static boolean awaitWorkers(ExecutorService workers, boolean cancel) {
+        boolean interrupted = false;
+        if (cancel) {
+            workers.shutdownNow();
+        } else {
+            workers.shutdown();
+        }
+        while (true) {
+            try {
+                if (workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    return interrupted;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 一次 run() 的输出文件和统计，由 this 保护
+     */
+    private static final class RunState {
+        private final BufferedWriter output;
+        private final BufferedWriter checkpoint;
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private int finished;
+        private int failed;
+        // 无效的输入行数，计入失败但不计入延迟
+        private int invalid;
+
+        RunState(BufferedWriter output, BufferedWriter checkpoint) {
+            this.output = output;
+            this.checkpoint = checkpoint;
+        }
+
+        /**
+         * 无效的输入行：只写结果，不写检查点，不计入延迟
+         */
+        synchronized void writeInvalid(String id, String error) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", id);
+            record.put("state", AgentState.FAILED.name());
+            record.put("error", error);
+            writeRecord(record);
+            invalid++;
+        }
+
+        /**
+         * 先写结果再写检查点：进程中断时最多重复执行一条，不会丢失结果
+         * 只有成功的条目写检查点，失败的条目重启后重新执行
+         */
+        synchronized void write(String id, Map<String, Object> record, long latency, boolean success) {
+            writeRecord(record);
+            if (success) {
+                try {
+                    checkpoint.write(id);
+                    checkpoint.newLine();
+                    checkpoint.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            latencies.record(latency);
+            finished++;
+            if (!success) {
+                failed++;
+            }
+        }
+
+        private void writeRecord(Map<String, Object> record) {
+            try {
+                output.write(Json.mapper().writeValueAsString(record));
+                output.newLine();
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static Set<String> loadCheckpoint(Path checkpointFile) throws IOException {
+        Set<String> done = new HashSet<>();
+        if (Files.exists(checkpointFile)) {
+            for (String line : Files.readAllLines(checkpointFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    done.add(line);
+                }
+            }
+        }
+        return done;
+    }
+
+    private static BufferedWriter append(Path file) throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
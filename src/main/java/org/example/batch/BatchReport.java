@@ -0,0 +1,52 @@
+package org.example.batch;
+
+public class BatchReport {
+    private final int completed;
+    private final int failed;
+    private final int skipped;
+    private final long wallTimeMillis;
+    private final long p50Millis;
+    private final long p99Millis;
+    private final long llmRequests;
+    private final long inputTokens;
+    private final long outputTokens;
+
+    public BatchReport(int completed, int failed, int skipped, long wallTimeMillis,
+                       long p50Millis, long p99Millis,
+                       long llmRequests, long inputTokens, long outputTokens) {
+        this.completed = completed;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.wallTimeMillis = wallTimeMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.llmRequests = llmRequests;
+        this.inputTokens = inputTokens;
+        this.outputTokens = outputTokens;
+    }
+
+    public int getCompleted() { return completed; }
+    public int getFailed() { return failed; }
+    public int getSkipped() { return skipped; }
+    public long getWallTimeMillis() { return wallTimeMillis; }
+    public long getP50Millis() { return p50Millis; }
+    public long getP99Millis() { return p99Millis; }
+    public long getLlmRequests() { return llmRequests; }
+    public long getInputTokens() { return inputTokens; }
+    public long getOutputTokens() { return outputTokens; }
+
+    /**
+     * 每秒完成的计划数（含失败）
+     */
+    public double getThroughput() {
+        return wallTimeMillis > 0 ? (completed + failed) * 1000.0 / wallTimeMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchReport{completed=%d, failed=%d, skipped=%d, wallTime=%dms, " +
+                        "throughput=%.2f/s, p50=%dms, p99=%dms, llmRequests=%d, tokens(in=%d, out=%d)}",
+                completed, failed, skipped, wallTimeMillis, getThroughput(), p50Millis, p99Millis,
+                llmRequests, inputTokens, outputTokens);
+    }
+}
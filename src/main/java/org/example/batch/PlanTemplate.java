@@ -0,0 +1,68 @@
+package org.example.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.plan.Plan;
+import org.example.plan.PlanStep;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 计划模板
+ * 标题和步骤要求中的 {{name}} 占位符在实例化时用输入字段替换
+ */
+public class PlanTemplate {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([\\w.-]+)\\s*}}");
+
+    private final Plan template;
+
+    public PlanTemplate(Plan template) {
+        this.template = template;
+    }
+
+    /**
+     * 从 JSON 文件加载模板
+     * 格式: {"id": "...", "title": "...", "steps": [{"requirement": "...", "allowedTools": [...], "maxSteps": 5}]}
+     */
+    public static PlanTemplate load(Path file, ObjectMapper objectMapper) throws IOException {
+        JsonNode root = objectMapper.readTree(file.toFile());
+        Plan plan = new Plan(root.path("id").asText("batch"), root.path("title").asText(""));
+        for (JsonNode step : root.path("steps")) {
+            List<String> allowedTools = new ArrayList<>();
+            step.path("allowedTools").forEach(tool -> allowedTools.add(tool.asText()));
+            plan.addStep(step.path("requirement").asText(), allowedTools, step.path("maxSteps").asInt(5));
+        }
+        return new PlanTemplate(plan);
+    }
+
+    /**
+     * 用输入字段实例化一个计划
+     * @param id 计划实例ID
+     * @param input 占位符取值，缺失的占位符保持原样
+     */
+    public Plan instantiate(String id, Map<String, Object> input) {
+        Plan plan = new Plan(id, fill(template.getTitle(), input));
+        for (PlanStep step : template.getSteps()) {
+            plan.addStep(fill(step.getRequirement(), input), step.getAllowedTools(), step.getMaxSteps());
+        }
+        return plan;
+    }
+
+    private static String fill(String text, Map<String, Object> input) {
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            Object value = input.get(matcher.group(1));
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(
+                    value != null ? value.toString() : matcher.group()));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
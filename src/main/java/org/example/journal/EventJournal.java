@@ -0,0 +1,362 @@
+package org.example.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 结构化事件日志
+ * 调用方把事件写入无锁环形缓冲区，后台线程批量写出为 JSONL 文件并按大小滚动。
+ * 热路径不做 I/O：不超过 maxPayload 的负载只保存引用，更长的负载在记录时截断，
+ * 缓冲区中积压的事件不会持有完整的大输出；缓冲区满时直接丢弃并计数。
+ *
+ * 配置（系统属性）:
+ * - lynxe.journal.enabled    是否启用，默认 true
+ * - lynxe.journal.file       日志文件，默认 logs/lynxe-journal.jsonl
+ * - lynxe.journal.maxBytes   单个文件最大字节数，默认 16MB
+ * - lynxe.journal.maxFiles   保留的滚动文件数，默认 3
+ * - lynxe.journal.maxPayload 每个事件保留的负载最大字符数，默认 2048
+ */
+public final class EventJournal implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(EventJournal.class);
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    // 空闲时写出线程挂起，由 record 唤醒；超时只是兜底
+    private static final long IDLE_PARK_NANOS = 1_000_000_000L;
+    private static final int PREVIEW_CHARS = 120;
+
+    // 全局实例，首次使用时按系统属性创建
+    private static volatile EventJournal global;
+
+    private final boolean enabled;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int maxPayloadChars;
+
+    // 环形缓冲区：每个槽位的序号 + 事件字段
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] timestamps;
+    private final JournalEventType[] types;
+    private final String[] subjects;
+    private final int[] steps;
+    private final long[] values;
+    private final String[] payloads;
+    private final int[] payloadLengths;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head; // 只由写出线程访问
+
+    private final Thread writer;
+    private volatile boolean running;
+    // 写出线程是否已挂起等待新事件
+    private volatile boolean idle;
+
+    private OutputStream out;
+    private long bytesWritten;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public EventJournal(Path file, int capacity, long maxFileBytes, int maxFiles, int maxPayloadChars) {
+        this(true, file, capacity, maxFileBytes, maxFiles, maxPayloadChars);
+    }
+
+    private EventJournal(boolean enabled, Path file, int capacity,
+                         long maxFileBytes, int maxFiles, int maxPayloadChars) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.maxPayloadChars = maxPayloadChars;
+
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(enabled ? size : 0);
+        this.timestamps = new long[enabled ? size : 0];
+        this.types = new JournalEventType[enabled ? size : 0];
+        this.subjects = new String[enabled ? size : 0];
+        this.steps = new int[enabled ? size : 0];
+        this.values = new long[enabled ? size : 0];
+        this.payloads = new String[enabled ? size : 0];
+        this.payloadLengths = new int[enabled ? size : 0];
+        for (int i = 0; i < sequences.length(); i++) {
+            sequences.set(i, i);
+        }
+
+        if (enabled) {
+            this.running = true;
+            this.writer = new Thread(this::drainLoop, "event-journal-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * 获取全局事件日志
+     */
+    public static EventJournal global() {
+        EventJournal journal = global;
+        if (journal == null) {
+            synchronized (EventJournal.class) {
+                journal = global;
+                if (journal == null) {
+                    journal = fromSystemProperties();
+                    Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "event-journal-shutdown"));
+                    global = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    private static EventJournal fromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty("lynxe.journal.enabled", "true"))) {
+            return new EventJournal(false, null, 0, 0, 0, 0);
+        }
+        return new EventJournal(
+                Path.of(System.getProperty("lynxe.journal.file", "logs/lynxe-journal.jsonl")),
+                DEFAULT_CAPACITY,
+                Long.getLong("lynxe.journal.maxBytes", 16L * 1024 * 1024),
+                Integer.getInteger("lynxe.journal.maxFiles", 3),
+                Integer.getInteger("lynxe.journal.maxPayload", 2048)
+        );
+    }
+
+    /**
+     * 记录一个事件，从不阻塞
+     * @param type 事件类型
+     * @param subject 事件主体（例如工具名、计划ID）
+     * @param step 第一个数值字段，通常是步骤序号；日志中的字段名见 {@link JournalEventType#getStepField()}
+     * @param value 第二个数值字段（例如令牌数）；日志中的字段名见 {@link JournalEventType#getValueField()}
+     * @param payload 负载，超过 maxPayload 时只保留开头部分，日志中记录原始长度
+     * @return 缓冲区已满被丢弃时返回 false
+     */
+    public boolean record(JournalEventType type, String subject, int step, long value, String payload) {
+        if (!enabled || !running) {
+            return false;
+        }
+        long pos = tail.get();
+        int idx;
+        while (true) {
+            idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+        timestamps[idx] = System.currentTimeMillis();
+        types[idx] = type;
+        subjects[idx] = subject;
+        steps[idx] = step;
+        values[idx] = value;
+        if (payload != null && payload.length() > maxPayloadChars) {
+            payloads[idx] = payload.substring(0, maxPayloadChars);
+            payloadLengths[idx] = payload.length();
+        } else {
+            payloads[idx] = payload;
+            payloadLengths[idx] = payload != null ? payload.length() : 0;
+        }
+        // 发布：写出线程看到新序号后才读取字段
+        // 用 volatile 写，保证与下面读 idle 不重排，写出线程不会错过唤醒
+        sequences.set(idx, pos + 1);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * 生成用于控制台日志的简短预览，完整内容写入事件日志
+     */
+    public static String preview(String text) {
+        if (text == null || text.length() <= PREVIEW_CHARS) {
+            return text;
+        }
+        return text.substring(0, PREVIEW_CHARS) + "...(" + text.length() + " 字符)";
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        try {
+            openFile();
+            while (running) {
+                if (drain() == 0) {
+                    out.flush();
+                    idle = true;
+                    // 挂起前再检查一次，避免与 record 的发布交错时错过唤醒
+                    if (running && !hasPending()) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                }
+            }
+            drain();
+            out.flush();
+        } catch (IOException e) {
+            log.error("写出事件日志失败: {}", e.getMessage(), e);
+            running = false;
+        } finally {
+            closeFile();
+        }
+    }
+
+    private boolean hasPending() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    private int drain() throws IOException {
+        int count = 0;
+        while (true) {
+            int idx = (int) (head & mask);
+            if (sequences.get(idx) != head + 1) {
+                return count;
+            }
+            writeEvent(idx);
+            payloads[idx] = null;
+            subjects[idx] = null;
+            sequences.lazySet(idx, head + mask + 1);
+            head++;
+            count++;
+        }
+    }
+
+    private void writeEvent(int idx) throws IOException {
+        String payload = payloads[idx];
+        line.setLength(0);
+        line.append("{\"ts\":").append(timestamps[idx])
+                .append(",\"type\":\"").append(types[idx].name()).append('"')
+                .append(",\"").append(types[idx].getStepField()).append("\":").append(steps[idx])
+                .append(",\"").append(types[idx].getValueField()).append("\":").append(values[idx]);
+        if (subjects[idx] != null) {
+            line.append(",\"subject\":");
+            appendJsonString(subjects[idx], subjects[idx].length());
+        }
+        if (payload != null) {
+            int length = payloadLengths[idx];
+            line.append(",\"payload\":");
+            appendJsonString(payload, payload.length());
+            line.append(",\"payloadLength\":").append(length);
+            if (payload.length() < length) {
+                line.append(",\"truncated\":true");
+            }
+        }
+        line.append("}\n");
+
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytesWritten + bytes.length > maxFileBytes && bytesWritten > 0) {
+            rotate();
+        }
+        out.write(bytes);
+        bytesWritten += bytes.length;
+    }
+
+    private void appendJsonString(String value, int length) {
+        line.append('"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private void openFile() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        bytesWritten = Files.exists(file) ? Files.size(file) : 0;
+        out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    /**
+     * 滚动: journal.jsonl → journal.jsonl.1 → journal.jsonl.2 ...
+     */
+    private void rotate() throws IOException {
+        out.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = i == 1 ? file : rotated(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles <= 1) {
+            Files.deleteIfExists(file);
+        }
+        openFile();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("关闭事件日志失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 停止写出线程，并写出缓冲区中剩余的事件
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dropped.get() > 0) {
+            log.warn("事件日志缓冲区已满，丢弃了 {} 个事件", dropped.get());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.journal;
+
+/**
+ * 事件日志中的事件类型
+ * 每种类型给出 record 的 step、value 两个数值参数在日志中的字段名
+ */
+public enum JournalEventType {
+    AGENT_START("step", "maxSteps"), //Agent 开始执行
+    AGENT_THINK("step", "value"), //Agent 思考结果
+    TOOL_RESULT("step", "success"), //工具执行结果，success 为 1 或 0
+    AGENT_END("stepsUsed", "unusedSteps"), //Agent 执行结束
+    LLM_RESPONSE("inputTokens", "outputTokens"), //LLM 响应
+    PLAN_START("step", "stepCount"), //计划开始执行
+    PLAN_STEP("step", "agentSteps"), //计划步骤完成
+    PLAN_END("stepsExecuted", "success"); //计划执行结束，success 为 1 或 0
+
+    private final String stepField;
+    private final String valueField;
+
+    JournalEventType(String stepField, String valueField) {
+        this.stepField = stepField;
+        this.valueField = valueField;
+    }
+
+    public String getStepField() {
+        return stepField;
+    }
+
+    public String getValueField() {
+        return valueField;
+    }
+}
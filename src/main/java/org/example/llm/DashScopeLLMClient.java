@@ -1,61 +1,133 @@
 package org.example.llm;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import org.example.journal.EventJournal;
+import org.example.journal.JournalEventType;
+import org.example.tool.Tool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 public class DashScopeLLMClient implements LLMClient{
     private static final Logger log = LoggerFactory.getLogger(DashScopeLLMClient.class);
     private static final String API_URL = "https://dashscope.aliyuncs.com/compatible-mode/v1/chat/completions";
+    private static final TypeReference<Map<String, Object>> ARGUMENTS_TYPE = new TypeReference<>() {
+    };
 
     private final String apiKey;
     private final String model;
-    private final OkHttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final String apiUrl;
+    private final boolean gzipRequests;
+    // 首次使用时才获取共享的 HTTP 客户端（OkHttp 初始化较慢）
+    private volatile OkHttpClient httpClient;
 
     public DashScopeLLMClient(String apiKey) {
         this(apiKey, "qwen-plus");
     }
 
     public DashScopeLLMClient(String apiKey, String model) {
+        this(apiKey, model, API_URL, false);
+    }
+
+    /**
+     * @param apiUrl 兼容 OpenAI 的 chat/completions 地址
+     * @param gzipRequests 是否 gzip 压缩请求体（对话历史很长时可显著减少上传量）
+     */
+    public DashScopeLLMClient(String apiKey, String model, String apiUrl, boolean gzipRequests) {
         this.apiKey = apiKey;
         this.model = model;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(120, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
-                .build();
-        this.objectMapper = new ObjectMapper();
+        this.apiUrl = apiUrl;
+        this.gzipRequests = gzipRequests;
+    }
+
+    /**
+     * 在后台线程初始化 HTTP 客户端和 JSON 序列化并建立连接，与应用其余的启动工作并行
+     */
+    @Override
+    public void warmUp() {
+        Thread.ofVirtual().name("llm-warmup").start(() -> {
+            Json.mapper();
+            LLMHttpClients.warmUp(httpClient(), apiUrl);
+        });
+    }
+
+    private OkHttpClient httpClient() {
+        OkHttpClient client = httpClient;
+        if (client == null) {
+            // 所有客户端共享连接池和调度器
+            client = gzipRequests ? LLMHttpClients.sharedGzip() : LLMHttpClients.shared();
+            httpClient = client;
+        }
+        return client;
     }
 
     @Override
     public LLMResponse chat(String prompt) {
-        // 构建请求体
-        Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "messages", List.of(
-                        Map.of("role", "user", "content", prompt)
-                ),
-                "temperature", 0.7,
-                "max_tokens", 4096
-        );
+        return send(baseRequest(prompt));
+    }
+
+    @Override
+    public LLMResponse chatJson(String prompt) {
+        Map<String, Object> requestBody = baseRequest(prompt);
+        requestBody.put("response_format", Map.of("type", "json_object"));
+        return send(requestBody);
+    }
+
+    @Override
+    public LLMResponse chat(String prompt, List<Tool> tools) {
+        Map<String, Object> requestBody = baseRequest(prompt);
+        List<Map<String, Object>> toolDefinitions = new ArrayList<>();
+        for (Tool tool : tools) {
+            toolDefinitions.add(Map.of(
+                    "type", "function",
+                    "function", Map.of(
+                            "name", tool.getName(),
+                            "description", tool.getDescription(),
+                            "parameters", tool.getParameterSchema()
+                    )
+            ));
+        }
+        requestBody.put("tools", toolDefinitions);
+        requestBody.put("tool_choice", "auto");
+        return send(requestBody);
+    }
+
+    @Override
+    public boolean supportsToolCalling() {
+        return true;
+    }
+
+    // 构建请求体
+    private Map<String, Object> baseRequest(String prompt) {
+        Map<String, Object> requestBody = new LinkedHashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", List.of(
+                Map.of("role", "user", "content", prompt)
+        ));
+        requestBody.put("temperature", 0.7);
+        requestBody.put("max_tokens", 4096);
+        return requestBody;
+    }
 
+    private LLMResponse send(Map<String, Object> requestBody) {
         try {
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
+            String jsonBody = Json.mapper().writeValueAsString(requestBody);
             Request request = new Request.Builder()
-                    .url(API_URL)
+                    .url(apiUrl)
                     .addHeader("Authorization", "Bearer " + apiKey)
                     .addHeader("Content-Type", "application/json")
                     .post(RequestBody.create(jsonBody, MediaType.parse("application/json")))
                     .build();
-            try (Response response = httpClient.newCall(request).execute()) {
+            try (Response response = httpClient().newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     String errorBody = response.body() != null ? response.body().string() : "未知错误";
                     log.error("LLM API 错误: {} - {}", response.code(), errorBody);
@@ -63,17 +135,20 @@ public class DashScopeLLMClient implements LLMClient{
                 }
 
                 String responseBody = response.body().string();
-                JsonNode root = objectMapper.readTree(responseBody);
+                JsonNode root = Json.mapper().readTree(responseBody);
 
-                String content = root.path("choices").path(0).path("message").path("content").asText();
+                JsonNode message = root.path("choices").path(0).path("message");
+                // 只有工具调用时 content 为 null
+                String content = message.path("content").isTextual() ? message.path("content").asText() : "";
+                List<ToolCall> toolCalls = parseToolCalls(message.path("tool_calls"));
                 int inputTokens = root.path("usage").path("prompt_tokens").asInt(0);
                 int outputTokens = root.path("usage").path("completion_tokens").asInt(0);
 
-                log.debug("LLM 响应: {} (令牌数: 输入={}, 输出={})",
-                        content.substring(0, Math.min(100, content.length())),
-                        inputTokens, outputTokens);
+                log.debug("LLM 响应令牌数: 输入={}, 输出={}, 工具调用={}", inputTokens, outputTokens, toolCalls.size());
+                EventJournal.global().record(JournalEventType.LLM_RESPONSE, model,
+                        inputTokens, outputTokens, content);
 
-                return new LLMResponse(content, inputTokens, outputTokens);
+                return new LLMResponse(content, inputTokens, outputTokens, toolCalls);
             }
 
         } catch (IOException e) {
@@ -82,4 +157,37 @@ public class DashScopeLLMClient implements LLMClient{
         }
 
     }
+
+    /**
+     * 解析 message.tool_calls，function.arguments 是 JSON 字符串
+     * 服务端生成的参数通常是合法 JSON，先用 Jackson 严格解析；失败时记录日志，再尝试容错解析
+     */
+    private List<ToolCall> parseToolCalls(JsonNode toolCallsNode) {
+        if (!toolCallsNode.isArray() || toolCallsNode.isEmpty()) {
+            return List.of();
+        }
+        List<ToolCall> toolCalls = new ArrayList<>();
+        for (JsonNode node : toolCallsNode) {
+            JsonNode function = node.path("function");
+            String arguments = function.path("arguments").asText("");
+            Map<String, Object> args = null;
+            if (!arguments.isBlank()) {
+                try {
+                    args = Json.mapper().readValue(arguments, ARGUMENTS_TYPE);
+                } catch (JsonProcessingException e) {
+                    log.warn("解析工具调用参数失败，尝试容错解析: {} - {}",
+                            e.getOriginalMessage(), EventJournal.preview(arguments));
+                    args = LLMOutputParser.parseObject(arguments);
+                    if (args == null) {
+                        log.warn("容错解析工具调用参数失败: {}", EventJournal.preview(arguments));
+                    }
+                }
+            }
+            if (args == null) {
+                args = new HashMap<>();
+            }
+            toolCalls.add(new ToolCall(function.path("name").asText(), args));
+        }
+        return toolCalls;
+    }
 }
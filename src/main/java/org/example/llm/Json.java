@@ -0,0 +1,30 @@
+package org.example.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 共享的 Jackson ObjectMapper
+ * ObjectMapper 创建开销大且线程安全，全局共用一个，首次使用时才初始化
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    private static final class Holder {
+        static final ObjectMapper MAPPER = new ObjectMapper();
+        // Map 按键排序输出，用于生成规范化的参数指纹
+        static final ObjectWriter CANONICAL_WRITER = MAPPER.writer()
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    public static ObjectMapper mapper() {
+        return Holder.MAPPER;
+    }
+
+    public static ObjectWriter canonicalWriter() {
+        return Holder.CANONICAL_WRITER;
+    }
+}
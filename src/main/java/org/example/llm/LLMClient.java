@@ -1,5 +1,9 @@
 package org.example.llm;
 
+import org.example.tool.Tool;
+
+import java.util.List;
+
 /**
  * LLM客户端
  */
@@ -10,4 +14,38 @@ public interface LLMClient {
      * @return LLM 相应
      */
     LLMResponse chat(String prompt);
+
+    /**
+     * 发送聊天请求，并要求 LLM 以 JSON 对象响应 (response_format)
+     * 不支持 JSON 模式的客户端退化为普通请求
+     * @param prompt 提示词
+     * @return LLM 相应
+     */
+    default LLMResponse chatJson(String prompt) {
+        return chat(prompt);
+    }
+
+    /**
+     * 发送带工具定义的聊天请求 (tools / tool_choice)，工具调用直接从响应中解析
+     * 不支持原生工具调用的客户端退化为普通请求
+     * @param prompt 提示词
+     * @param tools 可用工具
+     * @return LLM 相应，工具调用见 {@link LLMResponse#getToolCalls()}
+     */
+    default LLMResponse chat(String prompt, List<Tool> tools) {
+        return chat(prompt);
+    }
+
+    /**
+     * 是否支持原生工具调用
+     */
+    default boolean supportsToolCalling() {
+        return false;
+    }
+
+    /**
+     * 预热：提前建立连接，避免第一次请求承担握手开销
+     */
+    default void warmUp() {
+    }
 }
@@ -0,0 +1,182 @@
+package org.example.llm;
+
+import okhttp3.*;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LLM 客户端共享的 HTTP 连接池和调度器
+ * 所有客户端从同一个 OkHttpClient 派生，复用连接（HTTP/2 下多个请求复用同一连接）。
+ *
+ * 配置（系统属性）:
+ * - lynxe.http.maxIdleConnections  连接池最大空闲连接数，默认 16
+ * - lynxe.http.keepAliveSeconds    空闲连接保活时间，默认 300
+ * - lynxe.http.maxRequests         并发请求总数上限，默认 128
+ * - lynxe.http.maxRequestsPerHost  单个主机的并发请求上限，默认 32。HTTP/2 下同一主机的请求复用一个连接，
+ *                                  即该连接上的并发流数（服务端的 MAX_CONCURRENT_STREAMS 更小时 OkHttp 会另开连接）
+ * - lynxe.http.pingSeconds         HTTP/2 心跳间隔，默认 30，0 表示关闭
+ *
+ * OkHttp 的 Dispatcher 只限制异步调用（enqueue），同步调用（execute）不受其限制，
+ * 因此两个并发上限由 {@link ConcurrencyLimitInterceptor} 对同步和异步调用统一执行。
+ */
+public final class LLMHttpClients {
+    private static final Logger log = LoggerFactory.getLogger(LLMHttpClients.class);
+
+    private LLMHttpClients() {
+    }
+
+    // 延迟初始化：首次使用时才创建连接池和调度器线程
+    private static final class SharedHolder {
+        static final OkHttpClient SHARED = create();
+    }
+
+    /**
+     * 共享的 HTTP 客户端
+     */
+    public static OkHttpClient shared() {
+        return SharedHolder.SHARED;
+    }
+
+    /**
+     * 共享连接池和调度器，并对请求体做 gzip 压缩
+     * 服务端需要支持 Content-Encoding: gzip 的请求
+     */
+    public static OkHttpClient sharedGzip() {
+        return shared().newBuilder()
+                .addInterceptor(new GzipRequestInterceptor())
+                .build();
+    }
+
+    private static OkHttpClient create() {
+        int maxRequests = Integer.getInteger("lynxe.http.maxRequests", 128);
+        int maxRequestsPerHost = Integer.getInteger("lynxe.http.maxRequestsPerHost", 32);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                Integer.getInteger("lynxe.http.maxIdleConnections", 16),
+                Long.getLong("lynxe.http.keepAliveSeconds", 300L),
+                TimeUnit.SECONDS);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .addInterceptor(new ConcurrencyLimitInterceptor(maxRequests, maxRequestsPerHost))
+                .connectionPool(connectionPool)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .pingInterval(Long.getLong("lynxe.http.pingSeconds", 30L), TimeUnit.SECONDS)
+                .connectTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(120, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 预热：异步建立到目标主机的连接（DNS、TCP、TLS 握手），放入连接池
+     * 第一次 LLM 请求即可复用该连接
+     * @param client HTTP 客户端
+     * @param url 目标地址，只使用其协议、主机和端口
+     */
+    public static void warmUp(OkHttpClient client, String url) {
+        HttpUrl target = HttpUrl.get(url);
+        HttpUrl root = new HttpUrl.Builder()
+                .scheme(target.scheme())
+                .host(target.host())
+                .port(target.port())
+                .build();
+        Request request = new Request.Builder().url(root).head().build();
+        long start = System.nanoTime();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                log.debug("连接预热完成: {} ({} ms, {})", root.host(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), response.protocol());
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.warn("连接预热失败: {} - {}", root.host(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 限制并发请求总数和单个主机的并发请求数，超出时排队等待
+     * 许可在收到响应头后释放（LLM 接口的耗时几乎都在响应头之前）
+     */
+    static final class ConcurrencyLimitInterceptor implements Interceptor {
+        private final Semaphore total;
+        private final int maxRequestsPerHost;
+        private final Map<String, Semaphore> perHost = new ConcurrentHashMap<>();
+
+        ConcurrencyLimitInterceptor(int maxRequests, int maxRequestsPerHost) {
+            this.total = new Semaphore(maxRequests, true);
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Semaphore host = perHost.computeIfAbsent(chain.request().url().host(),
+                    key -> new Semaphore(maxRequestsPerHost, true));
+            acquire(host);
+            try {
+                acquire(total);
+                try {
+                    return chain.proceed(chain.request());
+                } finally {
+                    total.release();
+                }
+            } finally {
+                host.release();
+            }
+        }
+
+        private static void acquire(Semaphore semaphore) throws InterruptedIOException {
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待 HTTP 并发许可时被中断");
+            }
+        }
+    }
+
+    /**
+     * gzip 压缩请求体
+     */
+    static final class GzipRequestInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request original = chain.request();
+            if (original.body() == null || original.header("Content-Encoding") != null) {
+                return chain.proceed(original);
+            }
+            Request compressed = original.newBuilder()
+                    .header("Content-Encoding", "gzip")
+                    .method(original.method(), gzip(original.body()))
+                    .build();
+            return chain.proceed(compressed);
+        }
+
+        private static RequestBody gzip(RequestBody body) throws IOException {
+            // 先压缩到缓冲区，得到确定的 Content-Length，避免分块传输
+            okio.Buffer buffer = new okio.Buffer();
+            try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+                body.writeTo(sink);
+            }
+            return RequestBody.create(buffer.readByteString(), body.contentType());
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.example.llm;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 容错的 LLM 输出解析器
+ * 在响应文本上单遍扫描，找出平衡的 JSON 对象候选，直接构建 Map/List/String/Number，
+ * 不复制子串、不构建 JSON 树。可以处理:
+ * - markdown 代码块、前后的说明文字、文字中的花括号
+ * - 多个 JSON 对象（优先选择包含 "tool" 的对象）
+ * - 末尾多余的逗号、被截断的结尾（自动补全未闭合的字符串和括号，丢弃不完整的数值尾部）
+ * 数值类型与 Jackson 一致：整数按大小为 Integer/Long/BigInteger，小数为 Double。
+ * 嵌套深度超过 {@link #MAX_DEPTH}（与 Jackson StreamReadConstraints 同量级）的候选视为解析失败，
+ * 避免失控的 "[[[[…" 输出导致 StackOverflowError。
+ */
+public final class LLMOutputParser {
+
+    /**
+     * 对象和数组的最大嵌套深度（含最外层对象）
+     */
+    public static final int MAX_DEPTH = 512;
+
+    private final CharSequence text;
+    private final int length;
+    private int pos;
+    private int depth = 1;
+
+    private LLMOutputParser(CharSequence text, int start) {
+        this.text = text;
+        this.length = text.length();
+        this.pos = start;
+    }
+
+    /**
+     * 从响应文本中解析 JSON 对象
+     * @param text LLM 响应
+     * @return 第一个包含 "tool" 的对象；没有则返回第一个对象；都没有返回 null
+     */
+    public static Map<String, Object> parseObject(CharSequence text) {
+        Map<String, Object> first = null;
+        int from = 0;
+        int start;
+        // 已有候选扫描到末尾都没有闭合，之后的候选不再重复扫描（否则大量未闭合的 '{' 会退化为 O(n²)）
+        boolean unclosed = false;
+        while ((start = indexOf(text, '{', from)) >= 0) {
+            LLMOutputParser parser = new LLMOutputParser(text, start);
+            Map<String, Object> candidate = parser.readObject();
+            if (candidate == null) {
+                // 跳过整个失败的候选，不能把其中嵌套的对象当作顶层对象返回
+                int end = unclosed ? -1 : skipBalanced(text, start);
+                unclosed = end < 0;
+                from = end >= 0 ? end : parser.pos;
+                continue;
+            }
+            if (candidate.containsKey("tool")) {
+                return candidate;
+            }
+            if (first == null) {
+                first = candidate;
+            }
+            from = parser.pos;
+        }
+        return first;
+    }
+
+    /**
+     * 从 start 处的 '{' 开始按括号配对（忽略字符串中的括号），找到对应的 '}'
+     * @return '}' 之后的位置；直到末尾都没有闭合时返回 -1
+     */
+    private static int skipBalanced(CharSequence text, int start) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ---- 宽松的递归下降解析，失败时返回 null (对象/数组) 或 FAIL (值) ----
+
+    private static final Object FAIL = new Object();
+    // 数值在文本末尾被截断且没有可用的部分，丢弃该值
+    private static final Object TRUNCATED = new Object();
+
+    private Map<String, Object> readObject() {
+        pos++; // '{'
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (true) {
+            skipWhitespace();
+            if (pos >= length) {
+                return map; // 截断：补全 '}'
+            }
+            char c = text.charAt(pos);
+            if (c == '}') {
+                pos++;
+                return map;
+            }
+            if (c == ',') {
+                pos++; // 多余的逗号
+                continue;
+            }
+            if (c != '"') {
+                return null;
+            }
+            String key = readString();
+            skipWhitespace();
+            if (pos >= length) {
+                return map; // 截断在键之后，丢弃该键
+            }
+            if (text.charAt(pos) != ':') {
+                return null;
+            }
+            pos++;
+            skipWhitespace();
+            if (pos >= length) {
+                return map;
+            }
+            Object value = readValue();
+            if (value == FAIL) {
+                return null;
+            }
+            if (value == TRUNCATED) {
+                return map;
+            }
+            map.put(key, value);
+            skipWhitespace();
+            if (pos < length) {
+                c = text.charAt(pos);
+                if (c == ',') {
+                    pos++;
+                } else if (c != '}') {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        pos++; // '['
+        List<Object> list = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            if (pos >= length) {
+                return list; // 截断：补全 ']'
+            }
+            char c = text.charAt(pos);
+            if (c == ']') {
+                pos++;
+                return list;
+            }
+            if (c == ',') {
+                pos++;
+                continue;
+            }
+            Object value = readValue();
+            if (value == FAIL) {
+                return null;
+            }
+            if (value == TRUNCATED) {
+                return list;
+            }
+            list.add(value);
+            skipWhitespace();
+            if (pos < length) {
+                c = text.charAt(pos);
+                if (c == ',') {
+                    pos++;
+                } else if (c != ']') {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private Object readValue() {
+        char c = text.charAt(pos);
+        Object value;
+        switch (c) {
+            case '{', '[' -> {
+                if (depth >= MAX_DEPTH) {
+                    return FAIL;
+                }
+                depth++;
+                value = c == '{' ? readObject() : readArray();
+                depth--;
+            }
+            case '"' -> value = readString();
+            case 't' -> value = readLiteral("true", Boolean.TRUE);
+            case 'f' -> value = readLiteral("false", Boolean.FALSE);
+            case 'n' -> value = readLiteral("null", null);
+            default -> {
+                return (c == '-' || (c >= '0' && c <= '9')) ? readNumber() : FAIL;
+            }
+        }
+        return (value == null && c != 'n') ? FAIL : value;
+    }
+
+    private String readString() {
+        pos++; // '"'
+        StringBuilder sb = new StringBuilder();
+        while (pos < length) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= length) {
+                break;
+            }
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case 'n' -> sb.append('\n');
+                case 't' -> sb.append('\t');
+                case 'r' -> sb.append('\r');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    int code = hex4(pos);
+                    if (code >= 0) {
+                        sb.append((char) code);
+                        pos += 4;
+                    } else {
+                        // 无效或被截断的转义原样保留
+                        sb.append("\\u");
+                    }
+                }
+                case '"', '\\', '/' -> sb.append(escaped);
+                default -> sb.append('\\').append(escaped);
+            }
+        }
+        return sb.toString(); // 截断：补全 '"'
+    }
+
+    /**
+     * @return from 开始的 4 位十六进制数，不足 4 位或含非十六进制字符时返回 -1
+     */
+    private int hex4(int from) {
+        if (from + 4 > length) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = from; i < from + 4; i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            code = code * 16 + digit;
+        }
+        return code;
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        int end = Math.min(pos + literal.length(), length);
+        for (int i = pos; i < end; i++) {
+            if (text.charAt(i) != literal.charAt(i - pos)) {
+                return FAIL;
+            }
+        }
+        pos = end;
+        return value;
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        boolean decimal = false;
+        if (text.charAt(pos) == '-') {
+            pos++;
+        }
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E'
+                    || ((c == '+' || c == '-') && decimal)) {
+                decimal = true;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String number = text.subSequence(start, pos).toString();
+        if (pos >= length) {
+            // 截断在数值中间（如 "-"、"1.5e"）：去掉不完整的尾部
+            number = trimIncomplete(number);
+            if (number.isEmpty()) {
+                return TRUNCATED;
+            }
+            decimal = number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0;
+        }
+        try {
+            if (!decimal) {
+                // 超出 long 范围时与 Jackson 一样使用 BigInteger
+                if (number.length() > 18) {
+                    BigInteger value = new BigInteger(number);
+                    return value.bitLength() < 64 ? narrow(value.longValue()) : value;
+                }
+                return narrow(Long.parseLong(number));
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return FAIL;
+        }
+    }
+
+    private static String trimIncomplete(String number) {
+        int end = number.length();
+        while (end > 0 && ".eE+-".indexOf(number.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return number.substring(0, end);
+    }
+
+    private static Object narrow(long value) {
+        return (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) ? (Object) (int) value : value;
+    }
+
+    private void skipWhitespace() {
+        while (pos < length && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+}
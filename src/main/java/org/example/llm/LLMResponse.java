@@ -1,17 +1,27 @@
 package org.example.llm;
 
+import java.util.List;
+
 public class LLMResponse {
     private final String content;
     private final int inputTokens;
     private final int outputTokens;
+    private final List<ToolCall> toolCalls;
 
     public LLMResponse(String content, int inputTokens, int outputTokens) {
+        this(content, inputTokens, outputTokens, List.of());
+    }
+
+    public LLMResponse(String content, int inputTokens, int outputTokens, List<ToolCall> toolCalls) {
         this.content = content;
         this.inputTokens = inputTokens;
         this.outputTokens = outputTokens;
+        this.toolCalls = toolCalls;
     }
 
     public String getContent() { return content; }
     public int getInputTokens() { return inputTokens; }
     public int getOutputTokens() { return outputTokens; }
+    public List<ToolCall> getToolCalls() { return toolCalls; }
+    public boolean hasToolCalls() { return !toolCalls.isEmpty(); }
 }
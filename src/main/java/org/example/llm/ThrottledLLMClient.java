@@ -0,0 +1,80 @@
+package org.example.llm;
+
+import org.example.tool.Tool;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 共享的 LLM 调度器
+ * 限制同时进行的 LLM 请求数（公平排队），并统计请求数和令牌用量。
+ * 多个并发执行的 Agent / 计划共用同一个实例，避免超过服务端限流。
+ */
+public class ThrottledLLMClient implements LLMClient {
+    private final LLMClient delegate;
+    private final Semaphore permits;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+
+    public ThrottledLLMClient(LLMClient delegate, int maxConcurrentRequests) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    @Override
+    public LLMResponse chat(String prompt) {
+        return call(() -> delegate.chat(prompt));
+    }
+
+    @Override
+    public LLMResponse chatJson(String prompt) {
+        return call(() -> delegate.chatJson(prompt));
+    }
+
+    @Override
+    public LLMResponse chat(String prompt, List<Tool> tools) {
+        return call(() -> delegate.chat(prompt, tools));
+    }
+
+    @Override
+    public boolean supportsToolCalling() {
+        return delegate.supportsToolCalling();
+    }
+
+    @Override
+    public void warmUp() {
+        delegate.warmUp();
+    }
+
+    private LLMResponse call(Supplier<LLMResponse> request) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            LLMResponse response = request.get();
+            requests.increment();
+            if (response == null) {
+                failures.increment();
+            } else {
+                inputTokens.add(response.getInputTokens());
+                outputTokens.add(response.getOutputTokens());
+            }
+            return response;
+        } finally {
+            permits.release();
+        }
+    }
+
+    public long getRequestCount() { return requests.sum(); }
+    public long getFailureCount() { return failures.sum(); }
+    public long getInputTokens() { return inputTokens.sum(); }
+    public long getOutputTokens() { return outputTokens.sum(); }
+}
@@ -0,0 +1,24 @@
+package org.example.llm;
+
+import java.util.Map;
+
+/**
+ * LLM 决定的一次工具调用
+ */
+public class ToolCall {
+    private final String name;
+    private final Map<String, Object> arguments;
+
+    public ToolCall(String name, Map<String, Object> arguments) {
+        this.name = name;
+        this.arguments = arguments;
+    }
+
+    public String getName() { return name; }
+    public Map<String, Object> getArguments() { return arguments; }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s)", name, arguments);
+    }
+}
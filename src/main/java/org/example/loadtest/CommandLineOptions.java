@@ -0,0 +1,37 @@
+package org.example.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压测、基准和检查程序共用的命令行处理
+ */
+public final class CommandLineOptions {
+
+    private CommandLineOptions() {
+    }
+
+    /**
+     * 解析 key=value 形式的参数，其他形式的参数忽略
+     */
+    public static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 没有通过 -Dorg.slf4j.simpleLogger.defaultLogLevel 指定时，控制台日志只输出警告
+     * 必须在创建第一个 Logger 之前调用
+     */
+    public static void quietLogging() {
+        if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+            System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        }
+    }
+}
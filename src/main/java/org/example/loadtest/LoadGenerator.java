@@ -0,0 +1,164 @@
+package org.example.loadtest;
+
+import org.example.util.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 负载生成器
+ * - 开环：按固定到达率发起会话，不等待之前的会话完成；延迟从计划到达时间算起，校正协调遗漏
+ * - 闭环：固定并发数，每个并发者完成一个会话后立即发起下一个
+ * 每个会话在独立的虚拟线程中执行，会话返回值作为结果分类（例如 AgentState）。
+ */
+public class LoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    // 会话全部结束的最长等待时间
+    private static final long DRAIN_TIMEOUT_SECONDS = 300;
+
+    private final Callable<String> session;
+
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final LatencyRecorder serviceTimes = new LatencyRecorder();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public LoadGenerator(Callable<String> session) {
+        this.session = session;
+    }
+
+    /**
+     * 开环压测
+     * @param ratePerSecond 每秒到达的会话数
+     * @param duration 发起会话的时长
+     */
+    public LoadReport openLoop(double ratePerSecond, Duration duration) throws InterruptedException {
+        log.info("开环压测: {} 会话/秒, 持续 {}", ratePerSecond, duration);
+        long intervalNanos = (long) (1e9 / ratePerSecond);
+        ResourceSampler sampler = ResourceSampler.start();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                executor.execute(() -> runSession(intended));
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("仍有会话未完成，不计入结果");
+            }
+        }
+        return report("open(" + ratePerSecond + "/s)", start, sampler);
+    }
+
+    /**
+     * 闭环压测
+     * @param concurrency 并发会话数
+     * @param duration 压测时长，到时后不再发起新会话
+     */
+    public LoadReport closedLoop(int concurrency, Duration duration) throws InterruptedException {
+        log.info("闭环压测: 并发 {}, 持续 {}", concurrency, duration);
+        ResourceSampler sampler = ResourceSampler.start();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        runSession(System.nanoTime());
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(duration.toSeconds() + DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("仍有会话未完成，不计入结果");
+            }
+        }
+        return report("closed(" + concurrency + ")", start, sampler);
+    }
+
+    private void runSession(long intendedStartNanos) {
+        long actualStart = System.nanoTime();
+        String outcome;
+        try {
+            outcome = String.valueOf(session.call());
+        } catch (Exception e) {
+            errors.increment();
+            outcome = "ERROR";
+        }
+        long finish = System.nanoTime();
+        latencies.record((finish - intendedStartNanos) / 1000);
+        serviceTimes.record((finish - actualStart) / 1000);
+        outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        completed.increment();
+    }
+
+    private LoadReport report(String mode, long start, ResourceSampler sampler) {
+        long elapsed = System.nanoTime() - start;
+        sampler.stop();
+        Map<String, Long> outcomeCounts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome, count.sum()));
+        return new LoadReport(mode, completed.sum(), errors.sum(), outcomeCounts,
+                completed.sum() / (elapsed / 1e9),
+                latencies.sorted(), serviceTimes.sorted(),
+                sampler.peakHeapBytes.get(), sampler.threads.getPeakThreadCount());
+    }
+
+    /**
+     * 定时采样堆内存；线程数取 JVM 峰值平台线程数（虚拟线程不计入）
+     */
+    private static class ResourceSampler implements Runnable {
+        private static final long INTERVAL_MILLIS = 50;
+
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final AtomicLong peakHeapBytes = new AtomicLong();
+        private volatile boolean running = true;
+        private Thread thread;
+
+        static ResourceSampler start() {
+            ResourceSampler sampler = new ResourceSampler();
+            sampler.threads.resetPeakThreadCount();
+            sampler.thread = new Thread(sampler, "load-resource-sampler");
+            sampler.thread.setDaemon(true);
+            sampler.thread.start();
+            return sampler;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(INTERVAL_MILLIS));
+            }
+        }
+
+        void stop() {
+            running = false;
+            peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+    }
+}
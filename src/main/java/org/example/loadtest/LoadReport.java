@@ -0,0 +1,70 @@
+package org.example.loadtest;
+
+import org.example.util.LatencyRecorder;
+
+import java.util.Map;
+
+public class LoadReport {
+    private final String mode;
+    private final long sessions;
+    private final long errors;
+    private final Map<String, Long> outcomes;
+    private final double throughput;
+    private final long[] latencyMicros;
+    private final long[] serviceTimeMicros;
+    private final long peakHeapBytes;
+    private final int peakThreads;
+
+    public LoadReport(String mode, long sessions, long errors, Map<String, Long> outcomes, double throughput,
+                      long[] latencyMicros, long[] serviceTimeMicros, long peakHeapBytes, int peakThreads) {
+        this.mode = mode;
+        this.sessions = sessions;
+        this.errors = errors;
+        this.outcomes = outcomes;
+        this.throughput = throughput;
+        this.latencyMicros = latencyMicros;
+        this.serviceTimeMicros = serviceTimeMicros;
+        this.peakHeapBytes = peakHeapBytes;
+        this.peakThreads = peakThreads;
+    }
+
+    public String getMode() { return mode; }
+    public long getSessions() { return sessions; }
+    public long getErrors() { return errors; }
+    public Map<String, Long> getOutcomes() { return outcomes; }
+    public double getThroughput() { return throughput; }
+    public long getPeakHeapBytes() { return peakHeapBytes; }
+    public int getPeakThreads() { return peakThreads; }
+
+    /**
+     * 延迟百分位（毫秒）
+     * 开环模式下从计划的到达时间算起，已校正协调遗漏 (coordinated omission)
+     */
+    public double getLatencyMillis(double percentile) {
+        return LatencyRecorder.percentile(latencyMicros, percentile) / 1000.0;
+    }
+
+    /**
+     * 服务时间百分位（毫秒），从实际开始执行算起
+     */
+    public double getServiceTimeMillis(double percentile) {
+        return LatencyRecorder.percentile(serviceTimeMicros, percentile) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("模式: %s, 会话: %d, 错误: %d, 吞吐量: %.2f 会话/秒%n",
+                mode, sessions, errors, throughput));
+        sb.append("结果分布: ").append(outcomes).append('\n');
+        sb.append(String.format("延迟(ms)     p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                getLatencyMillis(0.50), getLatencyMillis(0.90), getLatencyMillis(0.99),
+                getLatencyMillis(0.999), getLatencyMillis(1.0)));
+        sb.append(String.format("服务时间(ms) p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                getServiceTimeMillis(0.50), getServiceTimeMillis(0.90), getServiceTimeMillis(0.99),
+                getServiceTimeMillis(0.999), getServiceTimeMillis(1.0)));
+        sb.append(String.format("峰值堆内存: %.1f MB, 峰值线程数: %d",
+                peakHeapBytes / 1024.0 / 1024.0, peakThreads));
+        return sb.toString();
+    }
+}
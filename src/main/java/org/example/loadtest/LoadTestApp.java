@@ -0,0 +1,93 @@
+package org.example.loadtest;
+
+import org.example.agent.AgentState;
+import org.example.agent.SimpleReActAgent;
+import org.example.llm.DashScopeLLMClient;
+import org.example.llm.LLMClient;
+import org.example.llm.ThrottledLLMClient;
+import org.example.plan.Plan;
+import org.example.plan.PlanExecutor;
+import org.example.tool.CalculatorTool;
+import org.example.tool.SearchTool;
+import org.example.tool.TerminateTool;
+import org.example.tool.Tool;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 压测入口：启动本地模拟 LLM 服务，对 Agent 或计划引擎施加负载，输出容量规划基线
+ *
+ * 用法: LoadTestApp [key=value ...]
+ * - mode=open|closed        开环或闭环，默认 open
+ * - rate=20                 开环：每秒到达的会话数
+ * - concurrency=16          闭环：并发会话数
+ * - duration=30             压测秒数
+ * - engine=agent|plan       压测对象，默认 agent
+ * - latency=200             模拟 LLM 基础延迟（毫秒）
+ * - jitter=100              模拟 LLM 延迟抖动均值（毫秒）
+ * - serverRps=0             模拟服务端每秒请求上限，0 不限
+ * - serverConcurrency=0     模拟服务端并发上限，0 不限
+ * - clientConcurrency=0     客户端 LLM 并发上限（ThrottledLLMClient），0 不限
+ * - tls=false               模拟服务是否使用 HTTPS（自签名证书）
+ */
+public class LoadTestApp {
+
+    public static void main(String[] args) throws Exception {
+        // 压测时控制台日志本身会成为瓶颈，默认只输出警告
+        CommandLineOptions.quietLogging();
+        Map<String, String> options = CommandLineOptions.parse(args);
+
+        try (MockLLMServer server = new MockLLMServer(
+                Long.parseLong(options.getOrDefault("latency", "200")),
+                Long.parseLong(options.getOrDefault("jitter", "100")),
+                Integer.parseInt(options.getOrDefault("serverRps", "0")),
+                Integer.parseInt(options.getOrDefault("serverConcurrency", "0")),
+                Boolean.parseBoolean(options.getOrDefault("tls", "false")))) {
+            server.start();
+            server.trustInThisProcess();
+
+            LLMClient llmClient = new DashScopeLLMClient("mock-key", "mock-model", server.getUrl(), false);
+            int clientConcurrency = Integer.parseInt(options.getOrDefault("clientConcurrency", "0"));
+            if (clientConcurrency > 0) {
+                llmClient = new ThrottledLLMClient(llmClient, clientConcurrency);
+            }
+            List<Tool> tools = List.of(new CalculatorTool(), new SearchTool(), new TerminateTool());
+
+            Callable<String> session = "plan".equals(options.get("engine"))
+                    ? planSession(llmClient, tools)
+                    : agentSession(llmClient, tools);
+            LoadGenerator generator = new LoadGenerator(session);
+            Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+
+            LoadReport report = "closed".equals(options.get("mode"))
+                    ? generator.closedLoop(Integer.parseInt(options.getOrDefault("concurrency", "16")), duration)
+                    : generator.openLoop(Double.parseDouble(options.getOrDefault("rate", "20")), duration);
+
+            System.out.println("\n📊 压测结果:");
+            System.out.println(report);
+            System.out.println("模拟服务: 请求 " + server.getRequests() + ", 限流 " + server.getRateLimited());
+        }
+    }
+
+    private static Callable<String> agentSession(LLMClient llmClient, List<Tool> tools) {
+        // Agent 不保存运行状态，所有会话共享一个实例
+        SimpleReActAgent agent = new SimpleReActAgent(
+                "你是一个有帮助的 AI 助手。请使用工具完成任务，完成后使用 'terminate' 工具提交答案。",
+                tools, llmClient, 5);
+        return () -> agent.run("计算 6 * 7").getState().name();
+    }
+
+    private static Callable<String> planSession(LLMClient llmClient, List<Tool> tools) {
+        PlanExecutor executor = new PlanExecutor(llmClient, tools);
+        return () -> {
+            Plan plan = new Plan("load", "压测计划")
+                    .addStep("计算 6 * 7", List.of("calculator", "terminate"), 5)
+                    .addStep("总结上一步的结果", List.of("terminate"), 3);
+            AgentState state = executor.execute(plan).getState();
+            return state.name();
+        };
+    }
+}
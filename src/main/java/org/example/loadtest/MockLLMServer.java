@@ -0,0 +1,320 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.example.llm.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 本地模拟 LLM 服务（兼容 OpenAI chat/completions）
+ * 模拟服务端延迟（基础延迟 + 指数分布抖动）和限流（每秒请求数、并发数，超出返回 429）。
+ * 响应逻辑固定：对话中还没有工具执行结果时调用 calculator，否则调用 terminate，
+ * 每个 Agent 会话恰好两次 LLM 请求。
+ * TLS 模式下使用临时生成的自签名证书（keytool），客户端通过 {@link #getClientTrustOptions()} 信任该证书。
+ */
+public class MockLLMServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MockLLMServer.class);
+
+    private final long baseLatencyMillis;
+    private final long jitterMillis;
+    private final int maxRequestsPerSecond;
+    private final int maxConcurrent;
+    private final boolean tls;
+
+    private static final String KEYSTORE_PASSWORD = "changeit";
+
+    private HttpServer server;
+    private Path keyStore;
+    private SSLContext sslContext;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder gzipRequests = new LongAdder();
+    private final AtomicLong firstRequestNanos = new AtomicLong();
+    // 客户端连接的源端口，用于统计连接数（连接复用）
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    // 令牌桶
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param baseLatencyMillis 基础延迟
+     * @param jitterMillis 抖动均值（指数分布），模拟长尾
+     * @param maxRequestsPerSecond 每秒请求上限，0 表示不限
+     * @param maxConcurrent 并发请求上限，0 表示不限
+     */
+    public MockLLMServer(long baseLatencyMillis, long jitterMillis, int maxRequestsPerSecond, int maxConcurrent) {
+        this(baseLatencyMillis, jitterMillis, maxRequestsPerSecond, maxConcurrent, false);
+    }
+
+    /**
+     * @param tls 是否使用 HTTPS（自签名证书）
+     */
+    public MockLLMServer(long baseLatencyMillis, long jitterMillis, int maxRequestsPerSecond,
+                         int maxConcurrent, boolean tls) {
+        this.baseLatencyMillis = baseLatencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxConcurrent = maxConcurrent;
+        this.tls = tls;
+        this.tokens = maxRequestsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void start() throws IOException {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 0);
+        if (tls) {
+            HttpsServer httpsServer = HttpsServer.create(address, 1024);
+            sslContext = createSslContext();
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+            server = httpsServer;
+        } else {
+            server = HttpServer.create(address, 1024);
+        }
+        server.createContext("/v1/chat/completions", this::handle);
+        // 其他路径（例如连接预热的 HEAD 请求）只记录连接
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.sendResponseHeaders(204, -1);
+            }
+        });
+        // 每个请求一个虚拟线程，服务端本身不成为瓶颈；
+        // JDK 的 HTTPS 实现在 synchronized 中等待握手数据，会钉住虚拟线程导致死锁，TLS 模式改用平台线程
+        server.setExecutor(tls ? Executors.newCachedThreadPool() : Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        log.info("模拟 LLM 服务已启动: {}", getUrl());
+    }
+
+    public String getUrl() {
+        return (tls ? "https" : "http") + "://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    public long getRequests() { return requests.sum(); }
+    public long getRateLimited() { return rateLimited.sum(); }
+    public long getGzipRequests() { return gzipRequests.sum(); }
+    public int getPeakInFlight() { return peakInFlight.get(); }
+
+    /**
+     * 收到过请求的客户端连接数
+     */
+    public int getConnections() { return clientPorts.size(); }
+
+    /**
+     * 客户端信任该服务自签名证书所需的 JVM 参数（-Djavax.net.ssl.trustStore 等），非 TLS 模式时为空
+     * 需要在客户端进程创建 HTTP 客户端之前生效
+     */
+    public List<String> getClientTrustOptions() {
+        if (keyStore == null) {
+            return List.of();
+        }
+        return List.of(
+                "-Djavax.net.ssl.trustStore=" + keyStore,
+                "-Djavax.net.ssl.trustStorePassword=" + KEYSTORE_PASSWORD,
+                "-Djavax.net.ssl.trustStoreType=PKCS12");
+    }
+
+    /**
+     * 服务端使用的 SSLContext（自签名证书），其他测试服务可以复用同一证书；非 TLS 模式或启动前为 null
+     */
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * 让当前进程信任该服务的自签名证书，需要在创建 HTTP 客户端之前调用
+     */
+    public void trustInThisProcess() {
+        for (String option : getClientTrustOptions()) {
+            String[] property = option.substring(2).split("=", 2);
+            System.setProperty(property[0], property[1]);
+        }
+    }
+
+    /**
+     * 上次重置后收到第一个请求的时间 (System.nanoTime)，还没有请求时为 0
+     */
+    public long getFirstRequestNanos() { return firstRequestNanos.get(); }
+    public void resetFirstRequest() { firstRequestNanos.set(0); }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        firstRequestNanos.compareAndSet(0, System.nanoTime());
+        requests.increment();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try (exchange) {
+            JsonNode request = readRequest(exchange);
+            if (!tryAcquireRate()) {
+                reject(exchange);
+                return;
+            }
+            int concurrent = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(concurrent, Math::max);
+            String body = null;
+            try {
+                if (maxConcurrent <= 0 || concurrent <= maxConcurrent) {
+                    long jitter = jitterMillis > 0
+                            ? (long) (-jitterMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble()))
+                            : 0;
+                    Thread.sleep(baseLatencyMillis + jitter);
+                    body = Json.mapper().writeValueAsString(respond(request));
+                }
+            } finally {
+                // 发送响应前结束计数：客户端收到响应头后就可能发出下一个请求
+                inFlight.decrementAndGet();
+            }
+            if (body == null) {
+                reject(exchange);
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode readRequest(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            gzipRequests.increment();
+            in = new GZIPInputStream(in);
+        }
+        return Json.mapper().readTree(in);
+    }
+
+    private Map<String, Object> respond(JsonNode request) {
+        String prompt = request.path("messages").path(0).path("content").asText();
+        boolean done = prompt.contains("执行结果");
+        String tool = done ? "terminate" : "calculator";
+        Map<String, Object> arguments = done ? Map.of("answer", "42") : Map.of("expression", "6 * 7");
+
+        Map<String, Object> message;
+        if (request.has("tools")) {
+            String argumentsJson;
+            try {
+                argumentsJson = Json.mapper().writeValueAsString(arguments);
+            } catch (IOException e) {
+                argumentsJson = "{}";
+            }
+            message = Map.of("role", "assistant", "tool_calls", List.of(Map.of(
+                    "id", "call_" + requests.sum(),
+                    "type", "function",
+                    "function", Map.of("name", tool, "arguments", argumentsJson))));
+        } else {
+            Map<String, Object> content = Map.of("reasoning", "mock", "tool", tool, "arguments", arguments);
+            try {
+                message = Map.of("role", "assistant", "content", Json.mapper().writeValueAsString(content));
+            } catch (IOException e) {
+                message = Map.of("role", "assistant", "content", "");
+            }
+        }
+        // 粗略估算令牌数：每 4 个字符一个令牌
+        return Map.of(
+                "choices", List.of(Map.of("index", 0, "message", message)),
+                "usage", Map.of("prompt_tokens", prompt.length() / 4, "completion_tokens", 20));
+    }
+
+    private synchronized boolean tryAcquireRate() {
+        if (maxRequestsPerSecond <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(maxRequestsPerSecond,
+                tokens + (now - lastRefillNanos) / 1e9 * maxRequestsPerSecond);
+        lastRefillNanos = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private void reject(HttpExchange exchange) throws IOException {
+        rateLimited.increment();
+        send(exchange, 429, "{\"error\":{\"message\":\"rate limited\"}}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * 用 keytool 生成临时的自签名证书（localhost / 127.0.0.1）
+     */
+    private SSLContext createSslContext() throws IOException {
+        Path directory = Files.createTempDirectory("mock-llm-tls");
+        keyStore = directory.resolve("mock-llm.p12");
+        List<String> command = List.of(
+                Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "mock-llm", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "2",
+                "-storetype", "PKCS12", "-keystore", keyStore.toString(),
+                "-storepass", KEYSTORE_PASSWORD, "-keypass", KEYSTORE_PASSWORD);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(30, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("生成自签名证书失败: " + output);
+            }
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            try (InputStream in = Files.newInputStream(keyStore)) {
+                store.load(in, KEYSTORE_PASSWORD.toCharArray());
+            }
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(store, KEYSTORE_PASSWORD.toCharArray());
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keyManagers.getKeyManagers(), null, null);
+            return context;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("生成自签名证书时被中断", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("加载自签名证书失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (keyStore != null) {
+            try {
+                Files.deleteIfExists(keyStore);
+                Files.deleteIfExists(keyStore.getParent());
+            } catch (IOException e) {
+                log.warn("删除临时证书失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时间测试：多次启动 {@link StartupProbe} 子进程，测量从进程启动到模拟 LLM 服务收到第一个请求的时间
+ * 分别在默认 JVM 和使用 AppCDS 归档（mvn package -Pappcds 生成）时测量并对比
+ * 默认通过 HTTPS 访问模拟服务，与访问 DashScope 时一样包含 TLS/JSSE 的类加载和握手
+ *
+ * 用法: StartupBenchmark [runs=5] [archive=target/app-cds.jsa] [tls=true] [train=归档文件]
+ * AppCDS 只归档 jar 中的类，对比时 classpath 需要是打包后的 jar（与生成归档时一致），例如:
+ *   java -cp target/minimal-implement-Lynxe-1.0-SNAPSHOT.jar org.example.loadtest.StartupBenchmark
+ * 指定 train 时不做测量，只启动一次 StartupProbe 并把它加载的类归档到该文件（mvn package -Pappcds 的训练运行），
+ * 归档的正是要加速的启动流程，不包含测试程序自身（模拟服务等）的类。
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions.quietLogging();
+        Map<String, String> options = CommandLineOptions.parse(args);
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Path archive = Path.of(options.getOrDefault("archive", "target/app-cds.jsa"));
+        boolean tls = Boolean.parseBoolean(options.getOrDefault("tls", "true"));
+        if (options.containsKey("train")) {
+            train(Path.of(options.get("train")), tls);
+            return;
+        }
+
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("默认", List.of());
+        if (Files.exists(archive)) {
+            configurations.put("AppCDS", List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto"));
+        } else {
+            System.out.println("未找到 AppCDS 归档 " + archive + "，只测试默认配置 (mvn package -Pappcds 生成归档)");
+        }
+
+        try (MockLLMServer server = new MockLLMServer(0, 0, 0, 0, tls)) {
+            server.start();
+            System.out.printf("%n📊 启动时间 (%s，首次 LLM 请求 / 进程结束, ms):%n", tls ? "HTTPS" : "HTTP");
+            for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+                long[] firstRequest = new long[runs];
+                long[] total = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    long[] result = runProbe(server, configuration.getValue());
+                    firstRequest[i] = result[0];
+                    total[i] = result[1];
+                }
+                System.out.printf("  %-8s 首次请求 中位数=%d 最小=%d | 结束 中位数=%d%n",
+                        configuration.getKey(), median(firstRequest), Arrays.stream(firstRequest).min().orElse(0),
+                        median(total));
+            }
+        }
+    }
+
+    /**
+     * 训练运行：StartupProbe 子进程退出时把加载过的类写入归档
+     */
+    private static void train(Path archive, boolean tls) throws Exception {
+        Files.deleteIfExists(archive);
+        try (MockLLMServer server = new MockLLMServer(0, 0, 0, 0, tls)) {
+            server.start();
+            runProbe(server, List.of("-XX:ArchiveClassesAtExit=" + archive, "-Xlog:cds=error"));
+            if (server.getRequests() == 0 || !Files.exists(archive)) {
+                System.err.println("AppCDS 训练运行失败: 请求数=" + server.getRequests() + ", 归档=" + archive);
+                System.exit(1);
+            }
+        }
+        System.out.println("AppCDS 归档已生成: " + archive);
+    }
+
+    private static long[] runProbe(MockLLMServer server, List<String> jvmOptions) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(server.getClientTrustOptions());
+        command.add("-Dlynxe.journal.enabled=false");
+        command.add("-Dorg.slf4j.simpleLogger.defaultLogLevel=warn");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupProbe.class.getName());
+        command.add(server.getUrl());
+
+        server.resetFirstRequest();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("启动测试子进程超时");
+        }
+        long end = System.nanoTime();
+        long firstRequest = server.getFirstRequestNanos();
+        return new long[]{
+                firstRequest > 0 ? TimeUnit.NANOSECONDS.toMillis(firstRequest - start) : -1,
+                TimeUnit.NANOSECONDS.toMillis(end - start)
+        };
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.loadtest;
+
+import org.example.agent.SimpleReActAgent;
+import org.example.llm.DashScopeLLMClient;
+import org.example.llm.LLMClient;
+import org.example.tool.CalculatorTool;
+import org.example.tool.SearchTool;
+import org.example.tool.TerminateTool;
+import org.example.tool.Tool;
+
+import java.util.List;
+
+/**
+ * 启动测试的子进程：按 MinimalLynxeApp 的启动流程创建客户端和 Agent，执行一次请求后退出
+ * 用法: StartupProbe <LLM 地址>
+ */
+public class StartupProbe {
+
+    public static void main(String[] args) {
+        LLMClient llmClient = new DashScopeLLMClient("mock-key", "mock-model", args[0], false);
+        llmClient.warmUp();
+        List<Tool> tools = List.of(
+                new CalculatorTool(),
+                new SearchTool(),
+                new TerminateTool()
+        );
+        SimpleReActAgent agent = new SimpleReActAgent(
+                "你是一个有帮助的 AI 助手。请使用工具完成任务，完成后使用 'terminate' 工具提交答案。",
+                tools, llmClient, 5);
+        agent.run("计算 6 * 7");
+        System.exit(0);
+    }
+}
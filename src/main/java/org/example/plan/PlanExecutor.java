@@ -2,7 +2,12 @@ package org.example.plan;
 
 import org.example.agent.AgentResult;
 import org.example.agent.AgentState;
+import org.example.agent.LoopPolicy;
 import org.example.agent.SimpleReActAgent;
+import org.example.agent.SpeculationStats;
+import org.example.agent.ToolCallPredictor;
+import org.example.journal.EventJournal;
+import org.example.journal.JournalEventType;
 import org.example.llm.LLMClient;
 import org.example.tool.TerminateTool;
 import org.example.tool.Tool;
@@ -13,16 +18,35 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PlanExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(PlanExecutor.class);
 
+    // 所有计划步骤共用的系统提示，步骤相关的信息作为运行上下文传入
+    private static final String STEP_SYSTEM_PROMPT = """
+            你是一个 AI 助手，正在执行多步骤计划中的一个步骤。
+            完成此步骤后，请使用 'terminate' 工具提交结果。""";
+
     private final LLMClient llmClient;
     private final Map<String, Tool> allTools;
+    // 推测执行：为 null 时关闭
+    private final ToolCallPredictor predictor;
+
+    // 按工具集合缓存的 Agent 定义，跨步骤、跨计划复用（Agent 不保存运行状态，可并发共享）
+    private final Map<List<String>, SimpleReActAgent> agents = new ConcurrentHashMap<>();
 
     public PlanExecutor(LLMClient llmClient, List<Tool> tools) {
+        this(llmClient, tools, null);
+    }
+
+    /**
+     * @param predictor 工具调用预测器，传给每个步骤的 Agent；为 null 时不做推测执行
+     */
+    public PlanExecutor(LLMClient llmClient, List<Tool> tools, ToolCallPredictor predictor) {
         this.llmClient = llmClient;
+        this.predictor = predictor;
         this.allTools = new HashMap<>();
         for (Tool tool : tools) {
             this.allTools.put(tool.getName(), tool);
@@ -35,24 +59,19 @@ public class PlanExecutor {
 
     public PlanResult execute(Plan plan) {
         log.info("📋 开始执行计划: {} ({})", plan.getTitle(), plan.getId());
+        EventJournal.global().record(JournalEventType.PLAN_START, plan.getId(), 0,
+                plan.getSteps().size(), plan.getTitle());
         List<StepResult> stepResults = new ArrayList<>();
         String previousResult = null;
         for (PlanStep step : plan.getSteps()) {
-            log.info("📌 正在执行步骤 {}: {}", step.getIndex(), step.getRequirement());
-            // 1. 筛选该步骤允许使用的工具
-            List<Tool> stepTools = filterTools(step.getAllowedTools());
-            // 2. 构建该步骤的系统提示
-            String systemPrompt = buildStepPrompt(step, previousResult);
-            // 3. 创建 Agent 执行该步骤
-            SimpleReActAgent agent = new SimpleReActAgent(
-                    systemPrompt,
-                    stepTools,
-                    llmClient,
-                    step.getMaxSteps()
-            );
-            // 4. 运行 Agent
-            AgentResult agentResult = agent.run(step.getRequirement());
-            // 5. 记录结果
+            log.info("📌 正在执行步骤 {}: {}", step.getIndex(), EventJournal.preview(step.getRequirement()));
+            // 1. 获取该步骤工具集合对应的 Agent
+            SimpleReActAgent agent = agentFor(step);
+            // 2. 构建该步骤的上下文
+            String context = buildStepContext(step, previousResult);
+            // 3. 运行 Agent
+            AgentResult agentResult = agent.run(step.getRequirement(), context, step.getMaxSteps());
+            // 4. 记录结果
             StepResult stepResult = new StepResult(
                     step.getIndex(),
                     step.getRequirement(),
@@ -62,10 +81,12 @@ public class PlanExecutor {
             );
             stepResults.add(stepResult);
             log.info("✅ 步骤 {} 完成: {}", step.getIndex(), agentResult.getState());
+            EventJournal.global().record(JournalEventType.PLAN_STEP, plan.getId(), step.getIndex(),
+                    agentResult.getStepsUsed(), agentResult.getResult());
 
-            // 6. 传递结果给下一步
+            // 5. 传递结果给下一步
             previousResult = agentResult.getResult();
-            // 7. 如果失败，停止执行
+            // 6. 如果失败，停止执行
             if (agentResult.getState() == AgentState.FAILED) {
                 log.error("❌ 步骤 {} 失败，停止计划执行", step.getIndex());
                 break;
@@ -75,17 +96,46 @@ public class PlanExecutor {
         // 确定最终状态
         boolean allCompleted = stepResults.stream()
                 .allMatch(r -> r.getState() == AgentState.COMPLETED ||
-                        r.getState() == AgentState.MAX_STEPS);
+                        r.getState() == AgentState.MAX_STEPS ||
+                        r.getState() == AgentState.LOOP_DETECTED);
         AgentState finalState = allCompleted ? AgentState.COMPLETED : AgentState.FAILED;
         String finalResult = stepResults.isEmpty() ?
                 "没有执行任何步骤" :
                 stepResults.get(stepResults.size() - 1).getResult();
 
         log.info("📋 计划执行完成: {}", finalState);
+        EventJournal.global().record(JournalEventType.PLAN_END, plan.getId(), stepResults.size(),
+                finalState == AgentState.COMPLETED ? 1 : 0, finalResult);
 
         return new PlanResult(plan.getId(), finalState, stepResults, finalResult);
     }
 
+    private SimpleReActAgent agentFor(PlanStep step) {
+        SimpleReActAgent agent = agents.get(step.getAllowedTools());
+        if (agent != null) {
+            return agent;
+        }
+        return agents.computeIfAbsent(List.copyOf(step.getAllowedTools()), allowedTools -> new SimpleReActAgent(
+                STEP_SYSTEM_PROMPT,
+                filterTools(allowedTools),
+                llmClient,
+                step.getMaxSteps(),
+                LoopPolicy.CORRECTIVE_HINT,
+                predictor
+        ));
+    }
+
+    /**
+     * 所有步骤 Agent 的推测执行统计之和
+     */
+    public SpeculationStats getSpeculationStats() {
+        List<SpeculationStats> stats = new ArrayList<>();
+        for (SimpleReActAgent agent : agents.values()) {
+            stats.add(agent.getSpeculationStats());
+        }
+        return SpeculationStats.sum(stats);
+    }
+
     private List<Tool> filterTools(List<String> allowedToolNames) {
         List<Tool> result = new ArrayList<>();
         for (String name : allowedToolNames) {
@@ -101,18 +151,16 @@ public class PlanExecutor {
         return result;
     }
 
-    private String buildStepPrompt(PlanStep step, String previousResult) {
+    private String buildStepContext(PlanStep step, String previousResult) {
         StringBuilder sb = new StringBuilder();
-        sb.append("你是一个 AI 助手，正在执行多步骤计划的第 ").append(step.getIndex())
-                .append(" 步。\n\n");
-        sb.append("本步骤任务: ").append(step.getRequirement()).append("\n\n");
+        sb.append("正在执行多步骤计划的第 ").append(step.getIndex()).append(" 步。\n");
+        sb.append("本步骤任务: ").append(step.getRequirement());
 
         if (previousResult != null) {
-            sb.append("上一步结果:\n").append(previousResult).append("\n\n");
+            // 过长时由 Agent 在本次运行中截断，截断部分可用 read_output 读取
+            sb.append("\n\n上一步结果:\n").append(previousResult);
         }
 
-        sb.append("完成此步骤后，请使用 'terminate' 工具提交结果。");
-
         return sb.toString();
     }
 
@@ -25,9 +25,15 @@ public class CalculatorTool implements Tool{
         return "expression (字符串): 要计算的数学表达式，例如 '(2 + 3) * 4'";
     }
 
+    @Override
+    public Map<String, Object> getParameterSchema() {
+        return Tool.stringParameters(Map.of("expression", "要计算的数学表达式，例如 '(2 + 3) * 4'"));
+    }
+
     @Override
     public ToolResult execute(Map<String, Object> params) {
-        String expression = (String) params.get("expression");
+        Object value = params.get("expression");
+        String expression = value != null ? value.toString() : null;
         if (expression == null || expression.isBlank()) {
             return ToolResult.error("表达式不能为空");
         }
@@ -40,4 +46,9 @@ public class CalculatorTool implements Tool{
             return ToolResult.error("计算失败: " + e.getMessage());
         }
     }
+
+    @Override
+    public boolean isSideEffectFree() {
+        return true;
+    }
 }
@@ -0,0 +1,94 @@
+package org.example.tool;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分页读取被截断的工具输出
+ * 只能读取同一次运行（{@link ToolOutputStore.Scope}）中产生的句柄
+ */
+public class ReadOutputTool implements Tool {
+    public static final String NAME = "read_output";
+
+    private final ToolOutputStore.Scope store;
+
+    /**
+     * @param store 本次运行的句柄作用域；为 null 时只用于描述工具（工具列表、参数定义），不能执行
+     */
+    public ReadOutputTool(ToolOutputStore.Scope store) {
+        this.store = store;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getDescription() {
+        return "读取之前被截断的工具输出的一部分。只在需要查看截断部分时使用。";
+    }
+
+    @Override
+    public String getParameterDescription() {
+        return "handle (字符串): 截断说明中给出的句柄；offset (整数，可选): 起始字符位置，默认 0；"
+                + "length (整数，可选): 读取的字符数";
+    }
+
+    @Override
+    public Map<String, Object> getParameterSchema() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("handle", Map.of("type", "string", "description", "截断说明中给出的句柄"));
+        properties.put("offset", Map.of("type", "integer", "description", "起始字符位置，默认 0"));
+        properties.put("length", Map.of("type", "integer", "description", "读取的字符数"));
+        return Map.of(
+                "type", "object",
+                "properties", properties,
+                "required", List.of("handle")
+        );
+    }
+
+    @Override
+    public ToolResult execute(Map<String, Object> params) {
+        if (store == null) {
+            return ToolResult.error("工具 " + NAME + " 只能在 Agent 运行中使用");
+        }
+        Object handleValue = params.get("handle");
+        String handle = handleValue != null ? handleValue.toString() : null;
+        int total = store.length(handle);
+        if (total < 0) {
+            return ToolResult.error("句柄 " + handle + " 不存在或已过期");
+        }
+        // 每页留出说明文字的空间，保证结果本身不会再被截断
+        int pageSize = Math.max(1, store.getMaxOutputChars() - 100);
+        int offset = Math.max(0, toInt(params.get("offset"), 0));
+        int length = Math.min(pageSize, Math.max(1, toInt(params.get("length"), pageSize)));
+        String page = store.read(handle, offset, length);
+        if (page == null) {
+            return ToolResult.error("读取句柄 " + handle + " 失败");
+        }
+        int end = offset + page.length();
+        return ToolResult.success(String.format("%s\n[字符 %d-%d / 共 %d%s]",
+                page, offset, end, total, end < total ? "，使用 offset=" + end + " 继续读取" : "，已读完"));
+    }
+
+    private static int toInt(Object value, int defaultValue) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public boolean isSideEffectFree() {
+        return true;
+    }
+}
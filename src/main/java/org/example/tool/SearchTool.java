@@ -18,9 +18,15 @@ public class SearchTool implements Tool{
         return "query (字符串): 搜索关键词";
     }
 
+    @Override
+    public Map<String, Object> getParameterSchema() {
+        return Tool.stringParameters(Map.of("query", "搜索关键词"));
+    }
+
     @Override
     public ToolResult execute(Map<String, Object> params) {
-        String query = (String) params.get("query");
+        Object value = params.get("query");
+        String query = value != null ? value.toString() : null;
         if (query == null || query.isBlank()) {
             return ToolResult.error("查询关键字不能为空");
         }
@@ -35,4 +41,9 @@ public class SearchTool implements Tool{
         );
         return ToolResult.success(result);
     }
+
+    @Override
+    public boolean isSideEffectFree() {
+        return true;
+    }
 }
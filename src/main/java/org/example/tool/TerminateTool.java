@@ -19,9 +19,15 @@ public class TerminateTool implements Tool {
         return "answer (字符串): 返回给用户的最终答案";
     }
 
+    @Override
+    public Map<String, Object> getParameterSchema() {
+        return Tool.stringParameters(Map.of("answer", "返回给用户的最终答案"));
+    }
+
     @Override
     public ToolResult execute(Map<String, Object> params) {
-        String answer = (String) params.getOrDefault("answer","任务已完成");
+        Object value = params.get("answer");
+        String answer = value != null ? value.toString() : "任务已完成";
         return ToolResult.terminate(answer);
     }
 
@@ -1,5 +1,7 @@
 package org.example.tool;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,6 +27,19 @@ public interface Tool {
      */
     String getParameterDescription();
 
+    /**
+     * 参数的 JSON Schema (用于原生工具调用)
+     * 默认不声明具体参数，由 LLM 按参数说明自行填写
+     * @return
+     */
+    default Map<String, Object> getParameterSchema() {
+        return Map.of(
+                "type", "object",
+                "description", getParameterDescription(),
+                "properties", Map.of()
+        );
+    }
+
     /**
      * 执行工具
      * @param params
@@ -32,6 +47,31 @@ public interface Tool {
      */
     ToolResult execute(Map<String,Object> params);
 
+    /**
+     * 构建只包含必填字符串参数的 JSON Schema
+     * @param descriptions 参数名 → 参数说明
+     * @return
+     */
+    static Map<String, Object> stringParameters(Map<String, String> descriptions) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        descriptions.forEach((name, description) ->
+                properties.put(name, Map.of("type", "string", "description", description)));
+        return Map.of(
+                "type", "object",
+                "properties", properties,
+                "required", List.copyOf(descriptions.keySet())
+        );
+    }
+
+    /**
+     * 是否没有副作用（只读、可重复执行）
+     * 没有副作用的工具可以在 LLM 决策之前被推测执行，结果不被采用时直接丢弃
+     * @return
+     */
+    default boolean isSideEffectFree() {
+        return false;
+    }
+
     /**
      * 是否是终止工具（调用后结束 Agent 循环）
      * @return
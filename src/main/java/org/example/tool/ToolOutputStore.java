@@ -0,0 +1,240 @@
+package org.example.tool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 工具输出存储
+ * 超过上限的工具输出写入临时文件，对话历史和 prompt 中只保留开头部分和一个句柄，
+ * Agent 需要时通过 {@link ReadOutputTool} 按需分页读取。
+ * 文件以 UTF-16BE 编码（每个字符 2 字节），按字符偏移直接定位读取。
+ *
+ * 句柄属于创建它的 {@link Scope}（每次 Agent 运行一个）：句柄随机生成、只能在同一个 Scope 中读取，
+ * Scope 关闭（运行结束）时删除其全部文件。并发运行的 Agent 之间既不能读取也不会淘汰对方的输出。
+ *
+ * 配置（系统属性）:
+ * - lynxe.tool.maxOutputChars 进入 prompt 的工具输出最大字符数，默认 4000
+ * - lynxe.tool.maxSpillFiles  每次运行保留的溢出文件数，超出时删除该运行最早的，默认 256
+ */
+public class ToolOutputStore {
+    private static final Logger log = LoggerFactory.getLogger(ToolOutputStore.class);
+
+    private static volatile ToolOutputStore global;
+
+    private final int maxOutputChars;
+    private final int maxSpillFiles;
+    private final SecureRandom random = new SecureRandom();
+
+    // 尚未关闭的 Scope，进程退出时清理
+    private final Set<Scope> openScopes = ConcurrentHashMap.newKeySet();
+    private Path directory;
+
+    public ToolOutputStore(int maxOutputChars, int maxSpillFiles) {
+        this.maxOutputChars = maxOutputChars;
+        this.maxSpillFiles = maxSpillFiles;
+    }
+
+    /**
+     * 获取全局工具输出存储
+     */
+    public static ToolOutputStore global() {
+        ToolOutputStore store = global;
+        if (store == null) {
+            synchronized (ToolOutputStore.class) {
+                store = global;
+                if (store == null) {
+                    store = new ToolOutputStore(
+                            Integer.getInteger("lynxe.tool.maxOutputChars", 4000),
+                            Integer.getInteger("lynxe.tool.maxSpillFiles", 256));
+                    Runtime.getRuntime().addShutdownHook(new Thread(store::clear, "tool-output-cleanup"));
+                    global = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    public int getMaxOutputChars() {
+        return maxOutputChars;
+    }
+
+    /**
+     * 为一次运行创建句柄作用域，运行结束时必须关闭
+     */
+    public Scope openScope() {
+        Scope scope = new Scope();
+        openScopes.add(scope);
+        return scope;
+    }
+
+    /**
+     * 删除所有溢出文件
+     */
+    public synchronized void clear() {
+        for (Scope scope : openScopes) {
+            scope.close();
+        }
+        if (directory != null) {
+            delete(directory);
+            directory = null;
+        }
+    }
+
+    private synchronized Path directory() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("lynxe-tool-output");
+        }
+        return directory;
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {} - {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * 一次运行的句柄作用域
+     */
+    public final class Scope implements AutoCloseable {
+        // 句柄 → 溢出文件，按写入顺序淘汰；由 this 保护
+        private final LinkedHashMap<String, Path> files = new LinkedHashMap<>();
+        private boolean closed;
+
+        private Scope() {
+        }
+
+        public int getMaxOutputChars() {
+            return maxOutputChars;
+        }
+
+        /**
+         * 限制输出长度：不超过上限时原样返回，否则写入临时文件，返回开头部分和句柄说明
+         */
+        public String bound(String output) {
+            if (output == null || output.length() <= maxOutputChars) {
+                return output;
+            }
+            String handle = spill(output);
+            String notice = String.format("\n...[输出已截断，共 %d 字符。完整内容句柄: %s，可使用 '%s' 工具分页读取]",
+                    output.length(), handle, ReadOutputTool.NAME);
+            int head = Math.max(0, maxOutputChars - notice.length());
+            return output.substring(0, head) + notice;
+        }
+
+        /**
+         * 把完整内容写入临时文件
+         * @return 随机生成的句柄
+         */
+        public String spill(String output) {
+            byte[] id = new byte[8];
+            random.nextBytes(id);
+            String handle = "out-" + HexFormat.of().formatHex(id);
+            try {
+                Path file = Files.createFile(directory().resolve(handle));
+                Files.write(file, output.getBytes(StandardCharsets.UTF_16BE));
+                synchronized (this) {
+                    if (closed) {
+                        delete(file);
+                        return handle;
+                    }
+                    files.put(handle, file);
+                    evict();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入工具输出失败", e);
+            }
+            return handle;
+        }
+
+        /**
+         * @return 完整内容的字符数，句柄不存在（或属于其他运行）时返回 -1
+         */
+        public int length(String handle) {
+            Path file = file(handle);
+            if (file == null) {
+                return -1;
+            }
+            try {
+                return (int) (Files.size(file) / 2);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * 读取一段内容
+         * @param offset 起始字符位置
+         * @param length 最多读取的字符数
+         * @return 内容片段，句柄不存在（或属于其他运行）时返回 null
+         */
+        public String read(String handle, int offset, int length) {
+            Path file = file(handle);
+            if (file == null) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long start = Math.max(0, (long) offset) * 2;
+                long end = Math.min(channel.size(), start + (long) Math.max(0, length) * 2);
+                if (start >= end) {
+                    return "";
+                }
+                ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                    // 读满为止
+                }
+                buffer.flip();
+                return StandardCharsets.UTF_16BE.decode(buffer).toString();
+            } catch (IOException e) {
+                log.warn("读取工具输出失败: {} - {}", handle, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * 删除该作用域的所有溢出文件
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Path file : files.values()) {
+                delete(file);
+            }
+            files.clear();
+            openScopes.remove(this);
+        }
+
+        private synchronized Path file(String handle) {
+            return handle != null ? files.get(handle) : null;
+        }
+
+        private void evict() {
+            Iterator<Map.Entry<String, Path>> iterator = files.entrySet().iterator();
+            while (files.size() > maxSpillFiles && iterator.hasNext()) {
+                delete(iterator.next().getValue());
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * 延迟记录，线程安全；单位由调用方决定（压测用微秒，批量执行用毫秒）
+ */
+public class LatencyRecorder {
+    private long[] values = new long[4096];
+    private int count;
+
+    public synchronized void record(long value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = value;
+    }
+
+    public synchronized long[] sorted() {
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * @param sorted 升序排列的记录
+     * @param percentile 分位数，0 到 1
+     * @return 不小于该比例记录的最小值，没有记录时返回 0
+     */
+    public static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.llm;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.example.loadtest.CommandLineOptions;
+import org.example.loadtest.MockLLMServer;
+import org.example.tool.CalculatorTool;
+import org.example.tool.Tool;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享 HTTP 客户端的端到端检查，对本地 TLS 模拟服务（自签名证书）验证:
+ * 1. warmUp() 建立的连接被之后的顺序请求复用（全程只有一个连接）
+ * 2. gzip 压缩的请求体被服务端正确解码，工具调用响应被正确解析
+ * 3. lynxe.http.maxRequestsPerHost 对同步调用生效，服务端观察到的并发数不超过上限
+ * 4. HTTP/2：通过 ALPN 协商 h2，并发请求复用同一个连接，该连接上的并发流数等于 maxRequestsPerHost
+ *
+ * 1-3 使用 {@link MockLLMServer}（JDK HttpsServer，只支持 HTTP/1.1），
+ * 4 使用支持 HTTP/2 的 OkHttp MockWebServer，证书与前者相同。
+ *
+ * 任一项不通过时进程以状态码 1 退出。
+ * 用法: HttpClientCheck [requests=3] [concurrent=8] [maxRequestsPerHost=2]
+ * 位于测试源码中，不打包进 jar，运行方式:
+ *   mvn test-compile org.codehaus.mojo:exec-maven-plugin:3.5.0:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=org.example.llm.HttpClientCheck
+ */
+public class HttpClientCheck {
+    // HTTP/2 模拟服务返回的工具调用响应
+    private static final String TOOL_CALL_RESPONSE = "{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"tool_calls\":[{\"id\":\"call_1\",\"type\":\"function\",\"function\":{\"name\":\"calculator\","
+            + "\"arguments\":\"{\\\"expression\\\":\\\"6 * 7\\\"}\"}}]}}],"
+            + "\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1}}";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions.quietLogging();
+        Map<String, String> options = CommandLineOptions.parse(args);
+        int requests = Integer.parseInt(options.getOrDefault("requests", "3"));
+        int concurrent = Integer.parseInt(options.getOrDefault("concurrent", "8"));
+        int maxRequestsPerHost = Integer.parseInt(options.getOrDefault("maxRequestsPerHost", "2"));
+        // 共享客户端首次使用时才读取这些属性
+        System.setProperty("lynxe.http.maxRequestsPerHost", String.valueOf(maxRequestsPerHost));
+
+        int failures = 0;
+        try (MockLLMServer server = new MockLLMServer(200, 0, 0, 0, true)) {
+            server.start();
+            server.trustInThisProcess();
+
+            DashScopeLLMClient client = new DashScopeLLMClient("mock-key", "mock-model", server.getUrl(), true);
+            List<Tool> tools = List.of(new CalculatorTool());
+
+            // 1. 预热后顺序请求，只应有一个连接
+            client.warmUp();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (server.getConnections() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            failures += check("预热建立了连接", server.getConnections() == 1,
+                    "连接数=" + server.getConnections());
+
+            String prompt = "历史记录 ".repeat(20_000);
+            int parsed = 0;
+            for (int i = 0; i < requests; i++) {
+                LLMResponse response = client.chat(prompt, tools);
+                if (response != null && response.hasToolCalls()
+                        && "calculator".equals(response.getToolCalls().get(0).getName())) {
+                    parsed++;
+                }
+            }
+            failures += check("顺序请求复用预热连接", server.getConnections() == 1,
+                    "连接数=" + server.getConnections());
+            failures += check("gzip 请求体被服务端解码", server.getGzipRequests() == requests,
+                    "gzip 请求=" + server.getGzipRequests() + "/" + requests);
+            failures += check("工具调用响应解析正确", parsed == requests, "解析成功=" + parsed + "/" + requests);
+
+            // 2. 同步调用的并发上限
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                List<Future<LLMResponse>> futures = new ArrayList<>();
+                for (int i = 0; i < concurrent; i++) {
+                    futures.add(executor.submit(() -> client.chat("并发请求", tools)));
+                }
+                int succeeded = 0;
+                for (Future<LLMResponse> future : futures) {
+                    succeeded += future.get() != null ? 1 : 0;
+                }
+                failures += check("并发请求全部成功", succeeded == concurrent,
+                        "成功=" + succeeded + "/" + concurrent);
+            } finally {
+                executor.shutdown();
+            }
+            failures += check("单主机并发不超过 maxRequestsPerHost", server.getPeakInFlight() <= maxRequestsPerHost,
+                    "服务端峰值并发=" + server.getPeakInFlight() + "，上限=" + maxRequestsPerHost);
+
+            // 3. HTTP/2 多路复用
+            failures += checkHttp2(server, tools, concurrent, maxRequestsPerHost);
+        }
+
+        if (failures > 0) {
+            System.out.printf("%n❌ %d 项检查未通过%n", failures);
+            System.exit(1);
+        }
+        System.out.println("\n✅ 所有检查通过");
+        System.exit(0);
+    }
+
+    /**
+     * 在 HTTP/2 模拟服务上检查协议协商、连接复用和单连接上的并发流数
+     * MockWebServer 中每个连接的请求序号从 0 开始，序号为 0 的请求数即连接数
+     */
+    private static int checkHttp2(MockLLMServer tlsServer, List<Tool> tools,
+                                  int concurrent, int maxRequestsPerHost) throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        int failures = 0;
+        try (MockWebServer server = new MockWebServer()) {
+            server.useHttps(tlsServer.getSslContext().getSocketFactory(), false);
+            server.setProtocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1));
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                    if (request.getSequenceNumber() == 0) {
+                        connections.incrementAndGet();
+                    }
+                    if (!"POST".equals(request.getMethod())) {
+                        return new MockResponse().setResponseCode(204);
+                    }
+                    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(200);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return new MockResponse()
+                            .setHeader("Content-Type", "application/json")
+                            .setBody(TOOL_CALL_RESPONSE);
+                }
+            });
+            server.start(InetAddress.getByName("127.0.0.1"), 0);
+
+            String url = server.url("/v1/chat/completions").toString();
+            Request probe = new Request.Builder().url(server.url("/")).head().build();
+            Protocol protocol;
+            try (Response response = LLMHttpClients.shared().newCall(probe).execute()) {
+                protocol = response.protocol();
+            }
+            failures += check("HTTP/2 通过 ALPN 协商成功", protocol == Protocol.HTTP_2, "协议=" + protocol);
+
+            DashScopeLLMClient client = new DashScopeLLMClient("mock-key", "mock-model", url, true);
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                List<Future<LLMResponse>> futures = new ArrayList<>();
+                for (int i = 0; i < concurrent; i++) {
+                    futures.add(executor.submit(() -> client.chat("并发请求", tools)));
+                }
+                int parsed = 0;
+                for (Future<LLMResponse> future : futures) {
+                    LLMResponse response = future.get();
+                    parsed += response != null && response.hasToolCalls() ? 1 : 0;
+                }
+                failures += check("HTTP/2 并发请求全部成功", parsed == concurrent,
+                        "成功=" + parsed + "/" + concurrent);
+            } finally {
+                executor.shutdown();
+            }
+            failures += check("HTTP/2 所有请求复用同一个连接", connections.get() == 1,
+                    "连接数=" + connections.get());
+            int expectedStreams = Math.min(concurrent, maxRequestsPerHost);
+            failures += check("HTTP/2 单连接上的并发流数等于 maxRequestsPerHost",
+                    peakInFlight.get() == expectedStreams,
+                    "峰值并发流=" + peakInFlight.get() + "，期望=" + expectedStreams);
+        }
+        return failures;
+    }
+
+    private static int check(String name, boolean ok, String detail) {
+        System.out.printf("%s %s (%s)%n", ok ? "✅" : "❌", name, detail);
+        return ok ? 0 : 1;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.loadtest.CommandLineOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LLM 输出解析测试：在固定语料（bench/llm-output-corpus.jsonl）上
+ * 1. 校验 {@link LLMOutputParser} 的结果与每条语料的期望值一致（值和数值类型都要一致）
+ * 2. 对比 LLMOutputParser 与原来的 extractJson + readTree 路径的耗时和内存分配
+ *
+ * 语料覆盖代码块、多个对象、多余逗号、截断、数值类型、转义等情况；有不一致时进程以状态码 1 退出。
+ *
+ * 用法: ParserBenchmark [rounds=5] [iterations=20000]
+ * 位于测试源码中，不打包进 jar，运行方式:
+ *   mvn test-compile org.codehaus.mojo:exec-maven-plugin:3.5.0:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=org.example.llm.ParserBenchmark -Dexec.args="rounds=5"
+ */
+public class ParserBenchmark {
+    private static final String CORPUS = "/bench/llm-output-corpus.jsonl";
+
+    private static final ObjectMapper mapper = Json.mapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = CommandLineOptions.parse(args);
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20000"));
+
+        List<Fixture> corpus = loadCorpus();
+        int failures = verify(corpus);
+
+        String[] inputs = corpus.stream().map(fixture -> fixture.input).toArray(String[]::new);
+        System.out.printf("%n📊 解析耗时 (%d 条语料, %d 轮 × %d 次, 每次解析一条):%n",
+                inputs.length, rounds, iterations);
+        measure("LLMOutputParser", inputs, rounds, iterations, ParserBenchmark::parseTolerant);
+        measure("extractJson+readTree", inputs, rounds, iterations, ParserBenchmark::parseLegacy);
+
+        if (failures > 0) {
+            System.out.printf("%n❌ %d 条语料与期望不一致%n", failures);
+            System.exit(1);
+        }
+        System.out.println("\n✅ 所有语料与期望一致");
+    }
+
+    /**
+     * 逐条校验新解析器的结果，并列出原路径能否解析
+     * @return 不一致的条数
+     */
+    private static int verify(List<Fixture> corpus) {
+        int failures = 0;
+        System.out.printf("%-32s %-8s %s%n", "语料", "新解析器", "extractJson+readTree");
+        for (Fixture fixture : corpus) {
+            Map<String, Object> parsed = LLMOutputParser.parseObject(fixture.input);
+            JsonNode actual = parsed == null ? null : mapper.valueToTree(parsed);
+            boolean ok = fixture.expected == null ? actual == null : fixture.expected.equals(actual);
+            if (!ok) {
+                failures++;
+            }
+            String legacy;
+            try {
+                legacy = parseLegacy(fixture.input) != null ? "解析成功" : "没有 JSON";
+            } catch (RuntimeException e) {
+                legacy = "失败";
+            }
+            System.out.printf("%-32s %-8s %s%n", fixture.name, ok ? "✅" : "❌", legacy);
+            if (!ok) {
+                System.out.printf("    期望: %s%n    实际: %s%n", fixture.expected, actual);
+            }
+        }
+        return failures;
+    }
+
+    private static void measure(String name, String[] inputs, int rounds, int iterations, Parser parser) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        // 预热
+        long sink = run(inputs, iterations, parser);
+
+        double[] nanosPerOp = new double[rounds];
+        double[] bytesPerOp = new double[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            sink += run(inputs, iterations, parser);
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            nanosPerOp[round] = (double) elapsed / iterations;
+            bytesPerOp[round] = (double) allocated / iterations;
+        }
+        Arrays.sort(nanosPerOp);
+        Arrays.sort(bytesPerOp);
+        System.out.printf("  %-22s 中位数=%8.0f ns/次  最小=%8.0f ns/次  分配=%8.0f B/次  (%d)%n",
+                name, nanosPerOp[rounds / 2], nanosPerOp[0], bytesPerOp[rounds / 2], sink % 10);
+    }
+
+    private static long run(String[] inputs, int iterations, Parser parser) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            try {
+                Object result = parser.parse(inputs[i % inputs.length]);
+                sink += result != null ? 1 : 0;
+            } catch (RuntimeException e) {
+                sink += 2;
+            }
+        }
+        return sink;
+    }
+
+    private static Object parseTolerant(String content) {
+        return LLMOutputParser.parseObject(content);
+    }
+
+    /**
+     * 原来的解析路径：取第一个 '{' 到最后一个 '}'，用 Jackson 构建树，参数转为字符串
+     */
+    private static Object parseLegacy(String content) {
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            JsonNode root = mapper.readTree(content.substring(start, end + 1));
+            Map<String, Object> args = new HashMap<>();
+            if (root.has("arguments")) {
+                root.get("arguments").fields().forEachRemaining(entry ->
+                        args.put(entry.getKey(), entry.getValue().asText()));
+            }
+            return root.has("tool") ? List.of(root.get("tool").asText(), args) : root.path("reasoning").asText();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static List<Fixture> loadCorpus() throws IOException {
+        InputStream stream = ParserBenchmark.class.getResourceAsStream(CORPUS);
+        if (stream == null) {
+            throw new IllegalStateException("找不到语料 " + CORPUS);
+        }
+        List<Fixture> corpus = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                JsonNode expected = node.path("expected");
+                corpus.add(new Fixture(node.path("name").asText(), node.path("input").asText(),
+                        expected.isNull() || expected.isMissingNode() ? null : expected));
+            }
+        }
+        return corpus;
+    }
+
+    private static class Fixture {
+        final String name;
+        final String input;
+        // 为 null 表示不应解析出对象
+        final JsonNode expected;
+
+        Fixture(String name, String input, JsonNode expected) {
+            this.name = name;
+            this.input = input;
+            this.expected = expected;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        Object parse(String content);
+    }
+}